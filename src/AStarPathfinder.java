@@ -5,110 +5,71 @@ import java.util.*;
 class AStarPathfinder {
 
     /**
-     * Find optimal path using A* algorithm with Haversine heuristic
+     * Find optimal path using A* algorithm with an admissible geometric heuristic
      * More efficient than Dijkstra for single-source single-destination
      */
     public static Route findOptimalPath(CampusGraph graph, Location source,
                                         Location destination, String transportMode) {
-        Map<Location, Double> gScore = new HashMap<>(); // Cost from start
-        Map<Location, Double> fScore = new HashMap<>(); // gScore + heuristic
-        Map<Location, Location> predecessors = new HashMap<>();
-        PriorityQueue<AStarNode> openSet = new PriorityQueue<>();
-        Set<Location> closedSet = new HashSet<>();
-
-        // Initialize
-        for (Location location : graph.getAllLocations()) {
-            gScore.put(location, Double.POSITIVE_INFINITY);
-            fScore.put(location, Double.POSITIVE_INFINITY);
-        }
-
-        gScore.put(source, 0.0);
-        fScore.put(source, heuristic(source, destination, transportMode));
-        openSet.offer(new AStarNode(source, fScore.get(source)));
-
-        while (!openSet.isEmpty()) {
-            AStarNode current = openSet.poll();
-            Location currentLocation = current.location;
-
-            if (currentLocation.equals(destination)) {
-                return reconstructAStarPath(graph, predecessors, source, destination, transportMode);
-            }
-
-            if (closedSet.contains(currentLocation)) continue;
-            closedSet.add(currentLocation);
-
-            // Explore neighbors
-            for (Edge edge : graph.getNeighbors(currentLocation)) {
-                if (edge.isClosed() || closedSet.contains(edge.getDestination())) continue;
-
-                Location neighbor = edge.getDestination();
-                double edgeWeight = transportMode.equals("walking") ?
-                        edge.getWalkingTime() : edge.getDrivingTime();
-                double tentativeGScore = gScore.get(currentLocation) + edgeWeight;
-
-                if (tentativeGScore < gScore.get(neighbor)) {
-                    predecessors.put(neighbor, currentLocation);
-                    gScore.put(neighbor, tentativeGScore);
-                    fScore.put(neighbor, gScore.get(neighbor) + heuristic(neighbor, destination, transportMode));
-                    openSet.offer(new AStarNode(neighbor, fScore.get(neighbor)));
-                }
-            }
-        }
-
-        return null; // No path found
+        return findOptimalPath(graph.snapshot(), source, destination, transportMode);
     }
 
-    private static double heuristic(Location current, Location destination, String transportMode) {
-        double distance = DistanceCalculator.calculateHaversineDistance(current, destination);
-        // Convert to time estimate based on transport mode
-        if (transportMode.equals("walking")) {
-            return DistanceCalculator.estimateWalkingTime(distance);
-        } else {
-            return DistanceCalculator.estimateDrivingTime(distance);
-        }
+    /**
+     * A* over a CSR snapshot with the snapshot's geometric lower bound
+     */
+    public static Route findOptimalPath(CompactGraph graph, Location source,
+                                        Location destination, String transportMode) {
+        return findOptimalPath(graph, source, destination, transportMode,
+                graph.geometricHeuristic(transportMode));
     }
 
-    private static Route reconstructAStarPath(CampusGraph graph, Map<Location, Location> predecessors,
-                                              Location source, Location destination, String transportMode) {
-        List<Location> path = new ArrayList<>();
-        Location current = destination;
-
-        while (current != null) {
-            path.add(0, current);
-            current = predecessors.get(current);
-        }
-
-        if (path.isEmpty() || !path.get(0).equals(source)) return null;
-
-        Route route = new Route(transportMode);
-        for (int i = 0; i < path.size(); i++) {
-            route.addLocation(path.get(i));
+    /**
+     * A* with a pluggable heuristic (e.g. LandmarkHeuristic), which must be consistent
+     * for the snapshot's weights; settled nodes are never reopened
+     */
+    public static Route findOptimalPath(CompactGraph graph, Location source, Location destination,
+                                        String transportMode, SearchHeuristic heuristic) {
+        return findOptimalPath(graph, source, destination, transportMode, heuristic, SearchDeadline.NONE);
+    }
 
-            if (i < path.size() - 1) {
-                for (Edge edge : graph.getNeighbors(path.get(i))) {
-                    if (edge.getDestination().equals(path.get(i + 1))) {
-                        route.addEdge(edge);
-                        break;
+    /**
+     * Same search, abandoned with CancellationException once the deadline expires
+     */
+    public static Route findOptimalPath(CompactGraph graph, Location source, Location destination,
+                                        String transportMode, SearchHeuristic heuristic, SearchDeadline deadline) {
+        int sourceNode = graph.indexOf(source);
+        int destinationNode = graph.indexOf(destination);
+        if (sourceNode < 0 || destinationNode < 0) return null;
+
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
+        double[] weights = graph.weights(transportMode);
+
+        try (SearchWorkspace workspace = SearchWorkspace.acquire(graph.getNodeCount())) {
+            IndexedMinHeap openSet = workspace.heap();
+            workspace.start(sourceNode, heuristic.estimate(sourceNode, destinationNode));
+            int settled = 0;
+
+            while (!openSet.isEmpty()) {
+                int u = openSet.poll();
+                if (u == destinationNode) {
+                    return graph.buildRoute(sourceNode, destinationNode, workspace.predecessorArcs(), transportMode);
+                }
+                workspace.settle(u);
+                deadline.checkEvery(++settled);
+
+                // Explore neighbors (closed roads carry infinite weight)
+                double gScore = workspace.distance(u);
+                for (int arc = offsets[u]; arc < offsets[u + 1]; arc++) {
+                    int v = targets[arc];
+                    double tentativeGScore = gScore + weights[arc];
+                    if (tentativeGScore < workspace.distance(v) && !workspace.isSettled(v)) {
+                        workspace.relax(v, tentativeGScore, arc,
+                                tentativeGScore + heuristic.estimate(v, destinationNode));
                     }
                 }
             }
         }
 
-        return route;
-    }
-
-    private static class AStarNode implements Comparable<AStarNode> {
-        Location location;
-        double fScore;
-
-        AStarNode(Location location, double fScore) {
-            this.location = location;
-            this.fScore = fScore;
-        }
-
-        @Override
-        public int compareTo(AStarNode other) {
-            return Double.compare(this.fScore, other.fScore);
-        }
+        return null; // No path found
     }
 }
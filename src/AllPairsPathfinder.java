@@ -0,0 +1,209 @@
+/**
+ * All-pairs shortest paths for sparse graphs (Johnson-style: one single-source search per node)
+ * Weights are non-negative, so no reweighting pass is needed; searches run in parallel across cores
+ */
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+class AllPairsPathfinder {
+    // Up to this size the tiled Floyd-Warshall is cheaper than V searches; beyond it E ~ 2-3V wins
+    public static final int DENSE_NODE_LIMIT = 256;
+
+    /**
+     * Dense (Floyd-Warshall) or sparse (per-node Dijkstra) precompute, picked by graph size
+     */
+    public static FloydWarshallPathfinder.AllPairsResult compute(CompactGraph graph, String transportMode,
+                                                                 ForkJoinPool pool) {
+        if (graph.getNodeCount() <= DENSE_NODE_LIMIT) {
+            return FloydWarshallPathfinder.computeAllPairsShortestPaths(graph, transportMode, pool);
+        }
+        return computeSparse(graph, transportMode, pool);
+    }
+
+    /**
+     * One backward search per destination column: the predecessor arc of i in the
+     * search rooted at j is the arc leaving i towards j, which gives next[i][j] directly
+     */
+    public static FloydWarshallPathfinder.AllPairsResult computeSparse(CompactGraph graph, String transportMode,
+                                                                       ForkJoinPool pool) {
+        FloydWarshallPathfinder.AllPairsResult result = new FloydWarshallPathfinder.AllPairsResult(graph, transportMode);
+        double[] weights = graph.weights(transportMode);
+        int n = graph.getNodeCount();
+
+        forEach(pool, IntStream.range(0, n).toArray(), j -> fillColumn(result, weights, j));
+        return result;
+    }
+
+    /**
+     * Distances to j from every node, plus next hops towards it
+     */
+    static void fillColumn(FloydWarshallPathfinder.AllPairsResult result, double[] weights, int j) {
+        CompactGraph graph = result.getGraph();
+        int n = result.getNodeCount();
+        int[] targets = graph.getTargets();
+
+        try (SearchWorkspace workspace = SearchWorkspace.acquire(n)) {
+            DijkstraPathfinder.searchBackward(graph, weights, j, -1, workspace);
+            for (int i = 0; i < n; i++) {
+                double distance = workspace.distance(i);
+                result.distances[i * n + j] = (float) distance;
+                if (i == j) {
+                    result.setSuccessor(i, j, j);
+                } else {
+                    result.setSuccessor(i, j, distance == Double.POSITIVE_INFINITY
+                            ? -1 : targets[workspace.predecessorArc(i)]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Distances from i to every node, plus the first hop of each path
+     */
+    static void fillRow(FloydWarshallPathfinder.AllPairsResult result, double[] weights, int i) {
+        CompactGraph graph = result.getGraph();
+        int n = result.getNodeCount();
+        int[] sources = graph.getSources();
+
+        try (SearchWorkspace workspace = SearchWorkspace.acquire(n)) {
+            DijkstraPathfinder.search(graph, weights, i, -1, workspace);
+            int[] firstHop = new int[n];
+            Arrays.fill(firstHop, -1);
+            firstHop[i] = i;
+            int[] chain = new int[n];
+            for (int j = 0; j < n; j++) {
+                double distance = workspace.distance(j);
+                result.distances[i * n + j] = (float) distance;
+                if (distance == Double.POSITIVE_INFINITY) {
+                    result.setSuccessor(i, j, -1);
+                    continue;
+                }
+                // Walk up the tree to the first node with a known first hop, then label the chain
+                int length = 0;
+                int v = j;
+                while (firstHop[v] < 0) {
+                    chain[length++] = v;
+                    v = sources[workspace.predecessorArc(v)];
+                }
+                int hop = firstHop[v];
+                while (length > 0) {
+                    int w = chain[--length];
+                    hop = v == i ? w : hop;
+                    firstHop[w] = hop;
+                    v = w;
+                }
+                result.setSuccessor(i, j, firstHop[j]);
+            }
+        }
+    }
+
+    private static void forEach(ForkJoinPool pool, int[] items, IntConsumer action) {
+        if (pool == null || items.length < 2) {
+            Arrays.stream(items).forEach(action);
+        } else {
+            pool.submit(() -> Arrays.stream(items).parallel().forEach(action)).join();
+        }
+    }
+
+    /**
+     * Bring a table up to date with a newer snapshot of the same topology
+     * The batch of changed arcs is found by comparing weights. Increases (including closures)
+     * invalidate only pairs whose shortest paths used the arc; the smaller of the affected
+     * source rows or destination columns is recomputed. Decreases (including reopenings) are then applied one arc at a time with
+     * the classic rule d[i][j] = min(d[i][j], d[i][u] + w + d[v][j]) restricted to the sources
+     * that improve on reaching v and the destinations that improve from u.
+     * The old table is left untouched for readers still using it
+     */
+    public static FloydWarshallPathfinder.AllPairsResult repair(FloydWarshallPathfinder.AllPairsResult table,
+                                                                CompactGraph snapshot, ForkJoinPool pool) {
+        CompactGraph previous = table.getGraph();
+        if (!previous.sharesTopologyWith(snapshot)) {
+            return compute(snapshot, table.getTransportMode(), pool);
+        }
+
+        double[] oldWeights = previous.weights(table.getTransportMode());
+        double[] newWeights = snapshot.weights(table.getTransportMode());
+        List<Integer> increased = new ArrayList<>();
+        List<Integer> decreased = new ArrayList<>();
+        for (int arc = 0; arc < newWeights.length; arc++) {
+            if (newWeights[arc] > oldWeights[arc]) increased.add(arc);
+            else if (newWeights[arc] < oldWeights[arc]) decreased.add(arc);
+        }
+        if (increased.isEmpty() && decreased.isEmpty() && previous == snapshot) return table;
+
+        FloydWarshallPathfinder.AllPairsResult repaired = new FloydWarshallPathfinder.AllPairsResult(table, snapshot);
+        int n = repaired.getNodeCount();
+        int[] sources = snapshot.getSources();
+        int[] targets = snapshot.getTargets();
+        float[] d = repaired.distances;
+
+        // An i -> j pair can only be affected by a slower arc u -> v if the arc lies on a shortest
+        // i -> v path and on a shortest u -> j path, so affected pairs sit inside rows x columns
+        BitSet rows = new BitSet(n);
+        BitSet columns = new BitSet(n);
+        for (int arc : increased) {
+            int u = sources[arc];
+            int v = targets[arc];
+            float w = (float) oldWeights[arc];
+            for (int x = 0; x < n; x++) {
+                if (onShortestPath(d[x * n + u] + w, d[x * n + v])) rows.set(x);
+                if (onShortestPath(w + d[v * n + x], d[u * n + x])) columns.set(x);
+            }
+        }
+        boolean byRow = rows.cardinality() < columns.cardinality();
+        int[] stale = (byRow ? rows : columns).stream().toArray();
+        if (stale.length > n / 2) {
+            return compute(snapshot, table.getTransportMode(), pool); // cheaper to start over
+        }
+
+        // Recompute with only the increases applied, so the whole table is exact for one weighting
+        // before the decreases (whose pruning relies on the triangle inequality) are folded in
+        double[] increasedOnly = newWeights.clone();
+        for (int arc : decreased) increasedOnly[arc] = oldWeights[arc];
+        forEach(pool, stale, x -> {
+            if (byRow) {
+                fillRow(repaired, increasedOnly, x);
+            } else {
+                fillColumn(repaired, increasedOnly, x);
+            }
+        });
+
+        for (int arc : decreased) {
+            applyDecrease(repaired, sources[arc], targets[arc], (float) newWeights[arc], pool);
+        }
+        return repaired;
+    }
+
+    /**
+     * Float-tolerant equality; a false positive only costs one extra column recompute
+     */
+    private static boolean onShortestPath(float viaArc, float best) {
+        return best != Float.POSITIVE_INFINITY && viaArc <= best + 1e-5f * Math.max(1f, best);
+    }
+
+    private static void applyDecrease(FloydWarshallPathfinder.AllPairsResult table, int u, int v, float w,
+                                      ForkJoinPool pool) {
+        int n = table.getNodeCount();
+        float[] d = table.distances;
+
+        // I: sources that now reach v more cheaply through u; J: destinations v now reaches more cheaply than u
+        int[] improvedSources = IntStream.range(0, n)
+                .filter(i -> d[i * n + u] + w < d[i * n + v]).toArray();
+        int[] improvedTargets = IntStream.range(0, n)
+                .filter(j -> w + d[v * n + j] < d[u * n + j]).toArray();
+
+        // Only row i is written for source i, and neither row v nor column u can change
+        forEach(pool, improvedSources, i -> {
+            float toArc = d[i * n + u] + w;
+            int firstHop = i == u ? v : table.successor(i, u);
+            for (int j : improvedTargets) {
+                float candidate = toArc + d[v * n + j];
+                if (candidate < d[i * n + j]) {
+                    d[i * n + j] = candidate;
+                    table.setSuccessor(i, j, firstHop);
+                }
+            }
+        });
+    }
+}
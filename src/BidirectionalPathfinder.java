@@ -0,0 +1,244 @@
+/**
+ * Bidirectional Dijkstra / A* over a CSR snapshot
+ * The backward frontier walks incoming arcs, which exist for every road because
+ * CampusGraph.addEdge stores both directions
+ */
+import java.util.*;
+import java.util.concurrent.*;
+class BidirectionalPathfinder {
+
+    /**
+     * Bidirectional Dijkstra on the live campus graph
+     */
+    public static Route findShortestPath(CampusGraph graph, Location source,
+                                         Location destination, String transportMode) {
+        return findPath(graph.snapshot(), source, destination, transportMode, false, null);
+    }
+
+    /**
+     * Bidirectional search between two locations
+     * useHeuristic: A* with average potentials built from an admissible geometric bound
+     * executor: when non-null the backward frontier runs on it while the caller runs the forward one
+     */
+    public static Route findPath(CompactGraph graph, Location source, Location destination,
+                                 String transportMode, boolean useHeuristic, Executor executor) {
+        SearchHeuristic heuristic = useHeuristic ? graph.geometricHeuristic(transportMode) : null;
+        return findPath(graph, source, destination, transportMode, heuristic, executor);
+    }
+
+    public static Route findPath(CompactGraph graph, Location source, Location destination,
+                                 String transportMode, SearchHeuristic heuristic, Executor executor) {
+        return findPath(graph, source, destination, transportMode, heuristic, executor, SearchDeadline.NONE);
+    }
+
+    /**
+     * Same search; both frontiers check the deadline and are abandoned with CancellationException
+     */
+    public static Route findPath(CompactGraph graph, Location source, Location destination,
+                                 String transportMode, SearchHeuristic heuristic, Executor executor,
+                                 SearchDeadline deadline) {
+        int s = graph.indexOf(source);
+        int t = graph.indexOf(destination);
+        if (s < 0 || t < 0) return null;
+
+        try (SearchWorkspace forward = SearchWorkspace.acquire(graph.getNodeCount());
+             SearchWorkspace backward = SearchWorkspace.acquire(graph.getNodeCount())) {
+            Search search = new Search(graph, graph.weights(transportMode), s, t, heuristic, forward, backward,
+                    deadline);
+            if (executor == null) {
+                search.runAlternating();
+            } else {
+                search.runParallel(executor);
+            }
+            return search.buildRoute(transportMode);
+        }
+    }
+
+    /**
+     * State of one bidirectional query
+     * Keys are dF(v) + p(v) forward and dB(v) - p(v) backward with the average potential
+     * p(v) = (h(v, t) - h(s, v)) / 2, so both searches see non-negative reduced costs and
+     * the query may stop once topForward + topBackward >= mu (best meeting cost so far)
+     */
+    private static class Search {
+        private final CompactGraph graph;
+        private final double[] weights;
+        private final int source;
+        private final int target;
+        private final SearchHeuristic heuristic;
+        private final SearchWorkspace forward;
+        private final SearchWorkspace backward;
+        private final SearchDeadline deadline;
+
+        private volatile double bestCost = Double.POSITIVE_INFINITY; // mu
+        private volatile int meetingArc = -1; // arc joining the forward tree to the backward tree
+        private volatile double forwardTop;
+        private volatile double backwardTop;
+        private volatile boolean abandoned; // forward half gave up; the backward half stops too
+
+        Search(CompactGraph graph, double[] weights, int source, int target, SearchHeuristic heuristic,
+               SearchWorkspace forward, SearchWorkspace backward, SearchDeadline deadline) {
+            this.graph = graph;
+            this.weights = weights;
+            this.source = source;
+            this.target = target;
+            this.heuristic = heuristic;
+            this.forward = forward;
+            this.backward = backward;
+            this.deadline = deadline;
+        }
+
+        private double potential(int node) {
+            if (heuristic == null) return 0.0;
+            return (heuristic.estimate(node, target) - heuristic.estimate(source, node)) / 2;
+        }
+
+        private double mu() {
+            return bestCost;
+        }
+
+        private synchronized void offerMeeting(double cost, int arc) {
+            // Both frontiers may report meetings in parallel mode, so cost and arc change together
+            if (cost < bestCost) {
+                meetingArc = arc;
+                bestCost = cost;
+            }
+        }
+
+        void runAlternating() {
+            forward.start(source, potential(source));
+            backward.start(target, -potential(target));
+            if (source == target) {
+                offerMeeting(0.0, -1);
+                return;
+            }
+
+            IndexedMinHeap forwardHeap = forward.heap();
+            IndexedMinHeap backwardHeap = backward.heap();
+            int settled = 0;
+            while (forwardHeap.peekKey() + backwardHeap.peekKey() < mu()) {
+                deadline.checkEvery(++settled);
+                if (forwardHeap.peekKey() <= backwardHeap.peekKey()) {
+                    stepForward();
+                } else {
+                    stepBackward();
+                }
+            }
+        }
+
+        void runParallel(Executor executor) {
+            forward.start(source, potential(source));
+            backward.start(target, -potential(target));
+            if (source == target) {
+                offerMeeting(0.0, -1);
+                return;
+            }
+
+            forwardTop = forward.heap().peekKey();
+            backwardTop = backward.heap().peekKey();
+            CompletableFuture<Void> backwardTask = CompletableFuture.runAsync(() -> {
+                IndexedMinHeap heap = backward.heap();
+                int settled = 0;
+                while (!abandoned && heap.peekKey() + forwardTop < mu()) {
+                    deadline.checkEvery(++settled);
+                    stepBackward();
+                    backwardTop = heap.peekKey();
+                }
+                backwardTop = Double.POSITIVE_INFINITY;
+            }, executor);
+
+            boolean finished = false;
+            try {
+                IndexedMinHeap heap = forward.heap();
+                int settled = 0;
+                while (heap.peekKey() + backwardTop < mu()) {
+                    deadline.checkEvery(++settled);
+                    stepForward();
+                    forwardTop = heap.peekKey();
+                }
+                forwardTop = Double.POSITIVE_INFINITY;
+                finished = true;
+            } finally {
+                if (!finished) abandoned = true;
+                try {
+                    backwardTask.join();
+                } catch (CompletionException e) {
+                    // Keep the forward half's own failure; otherwise report the backward one as is
+                    if (finished) {
+                        throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+                    }
+                }
+            }
+        }
+
+        private void stepForward() {
+            int u = forward.heap().poll();
+            forward.settleShared(u);
+
+            int[] offsets = graph.getOffsets();
+            int[] targets = graph.getTargets();
+            double du = forward.distance(u);
+            for (int arc = offsets[u]; arc < offsets[u + 1]; arc++) {
+                double w = weights[arc];
+                if (w == Double.POSITIVE_INFINITY) continue;
+                int v = targets[arc];
+                double dv = du + w;
+                forward.relax(v, dv, arc, dv + potential(v));
+
+                double other = backward.distanceShared(v);
+                if (du + w + other < mu()) {
+                    offerMeeting(du + w + other, arc);
+                }
+            }
+        }
+
+        private void stepBackward() {
+            int v = backward.heap().poll();
+            backward.settleShared(v);
+
+            int[] reverseOffsets = graph.getReverseOffsets();
+            int[] reverseArcs = graph.getReverseArcs();
+            int[] sources = graph.getSources();
+            double dv = backward.distance(v);
+            for (int i = reverseOffsets[v]; i < reverseOffsets[v + 1]; i++) {
+                int arc = reverseArcs[i];
+                double w = weights[arc];
+                if (w == Double.POSITIVE_INFINITY) continue;
+                int u = sources[arc];
+                double du = dv + w;
+                backward.relax(u, du, arc, du - potential(u));
+
+                double other = forward.distanceShared(u);
+                if (other + w + dv < mu()) {
+                    offerMeeting(other + w + dv, arc);
+                }
+            }
+        }
+
+        Route buildRoute(String transportMode) {
+            if (mu() == Double.POSITIVE_INFINITY) return null;
+            if (source == target) return graph.buildRoute(source, new int[0], 0, transportMode);
+
+            int[] sources = graph.getSources();
+            int[] targets = graph.getTargets();
+            int arc = meetingArc;
+            List<Integer> arcs = new ArrayList<>();
+
+            // Forward tree: source -> tail of the meeting arc
+            for (int v = sources[arc]; v != source; v = sources[forward.predecessorArc(v)]) {
+                arcs.add(forward.predecessorArc(v));
+            }
+            Collections.reverse(arcs);
+            arcs.add(arc);
+
+            // Backward tree: head of the meeting arc -> target
+            for (int v = targets[arc]; v != target; v = targets[backward.predecessorArc(v)]) {
+                arcs.add(backward.predecessorArc(v));
+            }
+
+            int[] path = new int[arcs.size()];
+            for (int i = 0; i < path.length; i++) path[i] = arcs.get(i);
+            return graph.buildRoute(source, path, path.length, transportMode);
+        }
+    }
+}
@@ -6,6 +6,7 @@ class CampusGraph {
     private Map<Location, List<Edge>> adjacencyList;
     private Map<String, Location> locationIndex; // for quick lookup by ID
     private Map<String, List<Location>> keywordIndex; // for landmark-based search
+    private CompactGraph compactTopology; // cached CSR layout, dropped whenever the topology changes
 
     public CampusGraph() {
         this.adjacencyList = new HashMap<>();
@@ -13,7 +14,8 @@ class CampusGraph {
         this.keywordIndex = new HashMap<>();
     }
 
-    public void addLocation(Location location) {
+    public synchronized void addLocation(Location location) {
+        compactTopology = null;
         adjacencyList.putIfAbsent(location, new ArrayList<>());
         locationIndex.put(location.getId(), location);
 
@@ -24,7 +26,9 @@ class CampusGraph {
         }
     }
 
-    public void addEdge(Edge edge) {
+    public synchronized void addEdge(Edge edge) {
+        compactTopology = null;
+
         // Add bidirectional edge
         adjacencyList.get(edge.getSource()).add(edge);
 
@@ -40,6 +44,18 @@ class CampusGraph {
         return adjacencyList.getOrDefault(location, new ArrayList<>());
     }
 
+    /**
+     * Frozen CSR snapshot carrying the current traffic multipliers and closures
+     * The topology is built once and reused, so repeat calls cost one O(E) weight pass
+     */
+    public synchronized CompactGraph snapshot() {
+        if (compactTopology == null) {
+            compactTopology = CompactGraph.fromCampusGraph(this);
+            return compactTopology;
+        }
+        return compactTopology.reweighed();
+    }
+
     public Location getLocationById(String id) {
         return locationIndex.get(id);
     }
@@ -60,8 +76,20 @@ class CampusGraph {
         return adjacencyList.values().stream().mapToInt(List::size).sum() / 2; // Divide by 2 for bidirectional
     }
 
+    /**
+     * Write per-arc traffic multipliers and closures of a snapshot's topology to the live edges in
+     * one step, under the lock snapshot() takes, so no snapshot freezes a half-applied update
+     */
+    public synchronized void applyConditions(CompactGraph topology, double[] arcMultipliers, boolean[] arcClosures) {
+        for (int arc = 0; arc < topology.getArcCount(); arc++) {
+            Edge edge = topology.getEdge(arc);
+            edge.setTrafficMultiplier(arcMultipliers[arc]);
+            edge.setClosed(arcClosures[arc]);
+        }
+    }
+
     // Update traffic conditions
-    public void updateTrafficConditions(Location source, Location destination, double multiplier) {
+    public synchronized void updateTrafficConditions(Location source, Location destination, double multiplier) {
         for (Edge edge : getNeighbors(source)) {
             if (edge.getDestination().equals(destination)) {
                 edge.setTrafficMultiplier(multiplier);
@@ -71,7 +99,7 @@ class CampusGraph {
     }
 
     // Close/open roads
-    public void setRoadClosure(Location source, Location destination, boolean closed) {
+    public synchronized void setRoadClosure(Location source, Location destination, boolean closed) {
         for (Edge edge : getNeighbors(source)) {
             if (edge.getDestination().equals(destination)) {
                 edge.setClosed(closed);
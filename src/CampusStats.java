@@ -5,20 +5,36 @@ class CampusStats {
     private int totalLocations;
     private int totalConnections;
     private int cachedRoutes;
+    private long cacheHits;
+    private long cacheMisses;
+    private long cacheEvictions;
 
     public CampusStats(int totalLocations, int totalConnections, int cachedRoutes) {
+        this(totalLocations, totalConnections, cachedRoutes, 0, 0, 0);
+    }
+
+    public CampusStats(int totalLocations, int totalConnections, int cachedRoutes,
+                       long cacheHits, long cacheMisses, long cacheEvictions) {
         this.totalLocations = totalLocations;
         this.totalConnections = totalConnections;
         this.cachedRoutes = cachedRoutes;
+        this.cacheHits = cacheHits;
+        this.cacheMisses = cacheMisses;
+        this.cacheEvictions = cacheEvictions;
     }
 
     public int getTotalLocations() { return totalLocations; }
     public int getTotalConnections() { return totalConnections; }
     public int getCachedRoutes() { return cachedRoutes; }
+    public long getCacheHits() { return cacheHits; }
+    public long getCacheMisses() { return cacheMisses; }
+    public long getCacheEvictions() { return cacheEvictions; }
 
     @Override
     public String toString() {
-        return String.format("Campus Stats: %d locations, %d connections, %d cached routes",
+        String summary = String.format("Campus Stats: %d locations, %d connections, %d cached routes",
                 totalLocations, totalConnections, cachedRoutes);
+        if (cacheHits + cacheMisses == 0) return summary;
+        return summary + String.format(" (%d hits, %d misses, %d evictions)", cacheHits, cacheMisses, cacheEvictions);
     }
 }
@@ -0,0 +1,251 @@
+/**
+ * Immutable compressed-sparse-row (CSR) snapshot of a CampusGraph
+ * Locations are mapped to dense int ids and the outgoing arcs of node v
+ * occupy the index range [offsets[v], offsets[v + 1]) of the arc arrays
+ * Every snapshot reads each edge once and gets a new version number, so a query that pins one
+ * snapshot sees a single consistent set of weights however the live edges change meanwhile
+ */
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+class CompactGraph {
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    private final long version;
+    private final Location[] locations;
+    private final Map<String, Integer> indexById;
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] sources; // tail node of every arc, for walking predecessor chains
+    private final Edge[] edges; // original Edge behind every arc, used to rebuild Routes
+    private final Map<Edge, Integer> arcByEdge; // inverse of edges, by identity
+
+    // Reverse CSR: incoming arcs of node v are reverseArcs[reverseOffsets[v] .. reverseOffsets[v + 1])
+    private final int[] reverseOffsets;
+    private final int[] reverseArcs;
+
+    // Per-mode arc weights; closed roads carry an infinite weight in every mode
+    private final double[] distances;
+    private final double[] walkingTimes;
+    private final double[] drivingTimes;
+    private final double[] trafficMultipliers; // as frozen, for closed arcs too
+
+    // Weights never change within a snapshot, so per-mode heuristics are built at most once
+    private final Map<String, SearchHeuristic> geometricHeuristics = new ConcurrentHashMap<>();
+
+    private CompactGraph(Location[] locations, Map<String, Integer> indexById, int[] offsets,
+                         int[] targets, int[] sources, Edge[] edges, Map<Edge, Integer> arcByEdge,
+                         int[] reverseOffsets, int[] reverseArcs) {
+        this(locations, indexById, offsets, targets, sources, edges, arcByEdge, reverseOffsets, reverseArcs,
+                null, null);
+    }
+
+    /**
+     * arcMultipliers and arcClosures, when non-null, replace the live edges' own conditions
+     */
+    private CompactGraph(Location[] locations, Map<String, Integer> indexById, int[] offsets,
+                         int[] targets, int[] sources, Edge[] edges, Map<Edge, Integer> arcByEdge,
+                         int[] reverseOffsets, int[] reverseArcs, double[] arcMultipliers, boolean[] arcClosures) {
+        this.locations = locations;
+        this.indexById = indexById;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.sources = sources;
+        this.edges = edges;
+        this.arcByEdge = arcByEdge;
+        this.reverseOffsets = reverseOffsets;
+        this.reverseArcs = reverseArcs;
+        this.distances = new double[edges.length];
+        this.walkingTimes = new double[edges.length];
+        this.drivingTimes = new double[edges.length];
+        this.trafficMultipliers = new double[edges.length];
+        this.version = VERSIONS.incrementAndGet();
+        readWeights(arcMultipliers, arcClosures);
+    }
+
+    /**
+     * Freeze the current adjacency list of a CampusGraph into CSR form
+     * Time complexity: O(V + E)
+     */
+    public static CompactGraph fromCampusGraph(CampusGraph graph) {
+        Location[] locations = graph.getAllLocations().toArray(new Location[0]);
+        Map<String, Integer> indexById = new HashMap<>(locations.length * 2);
+        for (int i = 0; i < locations.length; i++) {
+            indexById.put(locations[i].getId(), i);
+        }
+
+        int[] offsets = new int[locations.length + 1];
+        for (int i = 0; i < locations.length; i++) {
+            offsets[i + 1] = offsets[i] + graph.getNeighbors(locations[i]).size();
+        }
+
+        int[] targets = new int[offsets[locations.length]];
+        int[] sources = new int[targets.length];
+        Edge[] edges = new Edge[targets.length];
+        Map<Edge, Integer> arcByEdge = new IdentityHashMap<>(targets.length * 2);
+        for (int i = 0; i < locations.length; i++) {
+            int arc = offsets[i];
+            for (Edge edge : graph.getNeighbors(locations[i])) {
+                targets[arc] = indexById.get(edge.getDestination().getId());
+                sources[arc] = i;
+                edges[arc] = edge;
+                arcByEdge.put(edge, arc);
+                arc++;
+            }
+        }
+
+        // Group arcs by head node so backward searches can walk incoming arcs
+        int[] reverseOffsets = new int[locations.length + 1];
+        for (int target : targets) {
+            reverseOffsets[target + 1]++;
+        }
+        for (int i = 0; i < locations.length; i++) {
+            reverseOffsets[i + 1] += reverseOffsets[i];
+        }
+        int[] reverseArcs = new int[targets.length];
+        int[] fill = Arrays.copyOf(reverseOffsets, locations.length);
+        for (int arc = 0; arc < targets.length; arc++) {
+            reverseArcs[fill[targets[arc]]++] = arc;
+        }
+
+        return new CompactGraph(locations, indexById, offsets, targets, sources, edges, arcByEdge,
+                reverseOffsets, reverseArcs);
+    }
+
+    /**
+     * New snapshot over the same topology with weights re-read from the live edges
+     * Skips all hashing, so refreshing after traffic updates costs a single O(E) pass
+     */
+    public CompactGraph reweighed() {
+        return new CompactGraph(locations, indexById, offsets, targets, sources, edges, arcByEdge,
+                reverseOffsets, reverseArcs);
+    }
+
+    /**
+     * New snapshot over the same topology with the given per-arc traffic multipliers and closures
+     * in place of the live edges' own, so conditions are published without writing to shared Edges
+     */
+    public CompactGraph withConditions(double[] arcMultipliers, boolean[] arcClosures) {
+        if (arcMultipliers.length != edges.length || arcClosures.length != edges.length) {
+            throw new IllegalArgumentException("Conditions must cover every arc of the snapshot");
+        }
+        return new CompactGraph(locations, indexById, offsets, targets, sources, edges, arcByEdge,
+                reverseOffsets, reverseArcs, arcMultipliers, arcClosures);
+    }
+
+    private void readWeights(double[] arcMultipliers, boolean[] arcClosures) {
+        for (int arc = 0; arc < edges.length; arc++) {
+            Edge edge = edges[arc];
+            // read once so all modes agree
+            double multiplier = arcMultipliers == null ? edge.getTrafficMultiplier() : arcMultipliers[arc];
+            trafficMultipliers[arc] = multiplier;
+            if (arcClosures == null ? edge.isClosed() : arcClosures[arc]) {
+                distances[arc] = Double.POSITIVE_INFINITY;
+                walkingTimes[arc] = Double.POSITIVE_INFINITY;
+                drivingTimes[arc] = Double.POSITIVE_INFINITY;
+            } else {
+                distances[arc] = edge.getDistance();
+                walkingTimes[arc] = edge.getBaseWalkingTime() * multiplier;
+                drivingTimes[arc] = edge.getBaseDrivingTime() * multiplier;
+            }
+        }
+    }
+
+    // Accessors (arrays are shared, callers must treat them as read-only)
+    public long getVersion() { return version; }
+    public boolean isClosed(int arc) { return distances[arc] == Double.POSITIVE_INFINITY; }
+    public double getTrafficMultiplier(int arc) { return trafficMultipliers[arc]; }
+    public int getNodeCount() { return locations.length; }
+    public int getArcCount() { return targets.length; }
+    public int[] getOffsets() { return offsets; }
+    public int[] getTargets() { return targets; }
+    public int[] getSources() { return sources; }
+    public int[] getReverseOffsets() { return reverseOffsets; }
+    public int[] getReverseArcs() { return reverseArcs; }
+    public Location getLocation(int node) { return locations[node]; }
+    public Edge getEdge(int arc) { return edges[arc]; }
+
+    /**
+     * Arc id of a live edge; stable across reweighed snapshots, -1 for edges outside this topology
+     */
+    public int arcOf(Edge edge) {
+        Integer arc = arcByEdge.get(edge);
+        return arc != null ? arc : -1;
+    }
+
+    public int indexOf(Location location) {
+        return location == null ? -1 : indexOf(location.getId());
+    }
+
+    public int indexOf(String locationId) {
+        Integer index = indexById.get(locationId);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * Arc weights for "walking", "driving" or "distance"
+     */
+    public double[] weights(String mode) {
+        switch (mode) {
+            case "walking": return walkingTimes;
+            case "driving": return drivingTimes;
+            case "distance": return distances;
+            default: throw new IllegalArgumentException("Unknown transport mode: " + mode);
+        }
+    }
+
+    /**
+     * Admissible haversine-based lower bound for this snapshot's weights in the given mode
+     */
+    public SearchHeuristic geometricHeuristic(String mode) {
+        return geometricHeuristics.computeIfAbsent(mode, m -> new GeometricHeuristic(this, weights(m)));
+    }
+
+    public boolean sharesTopologyWith(CompactGraph other) {
+        return other != null && other.offsets == offsets;
+    }
+
+    /**
+     * First arc from one node to another, or -1 when they are not adjacent
+     */
+    public int arcBetween(int from, int to) {
+        for (int arc = offsets[from]; arc < offsets[from + 1]; arc++) {
+            if (targets[arc] == to) return arc;
+        }
+        return -1;
+    }
+
+    /**
+     * Build a Route from a source node and the arcs taken from it, in order
+     */
+    public Route buildRoute(int source, int[] arcs, int arcCount, String transportMode) {
+        Route route = new Route(transportMode);
+        route.addLocation(locations[source]);
+        for (int i = 0; i < arcCount; i++) {
+            route.addLocation(locations[targets[arcs[i]]]);
+            int arc = arcs[i];
+            double multiplier = trafficMultipliers[arc];
+            route.addEdge(edges[arc], edges[arc].getBaseWalkingTime() * multiplier,
+                    edges[arc].getBaseDrivingTime() * multiplier);
+        }
+        return route;
+    }
+
+    /**
+     * Build a Route by walking a predecessor-arc array back from the destination
+     * predecessorArc[v] is the arc used to reach v, or -1 at the search root
+     */
+    public Route buildRoute(int source, int destination, int[] predecessorArc, String transportMode) {
+        int length = 0;
+        for (int v = destination; v != source; v = sources[predecessorArc[v]]) {
+            if (predecessorArc[v] < 0 || length > locations.length) return null;
+            length++;
+        }
+
+        int[] arcs = new int[length];
+        for (int v = destination, i = length - 1; v != source; v = sources[predecessorArc[v]], i--) {
+            arcs[i] = predecessorArc[v];
+        }
+        return buildRoute(source, arcs, length, transportMode);
+    }
+}
@@ -0,0 +1,510 @@
+/**
+ * Contraction Hierarchies preprocessing and query engine
+ * Nodes are contracted in edge-difference order, adding shortcut arcs that preserve
+ * shortest-path distances; queries then run a bidirectional search that only moves
+ * upward in contraction rank and settle a tiny fraction of the graph
+ */
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+class ContractionHierarchy {
+    private static final int WITNESS_SETTLE_LIMIT = 64; // bounded witness search: extra shortcuts, never wrong ones
+
+    private final CompactGraph graph;
+    private final String transportMode;
+    private final int[] rank;
+
+    // All hierarchy arcs: original arcs keep their snapshot arc id, shortcuts point at two child arcs
+    private final int[] arcFrom;
+    private final int[] arcTo;
+    private final double[] arcWeight;
+    private final int[] arcOriginal; // snapshot arc id, or -1 for a shortcut
+    private final int[] arcChildFirst;
+    private final int[] arcChildSecond;
+
+    // Upward graph for the forward search: arcs u -> v with rank[u] < rank[v], grouped by u
+    private final int[] upOffsets;
+    private final int[] upArcs;
+    // Downward arcs u -> v with rank[u] > rank[v], grouped by v, so the backward search also climbs
+    private final int[] downOffsets;
+    private final int[] downArcs;
+
+    private ContractionHierarchy(CompactGraph graph, String transportMode, Builder builder) {
+        this.graph = graph;
+        this.transportMode = transportMode;
+        this.rank = builder.rank;
+        int arcCount = builder.arcCount;
+        this.arcFrom = Arrays.copyOf(builder.arcFrom, arcCount);
+        this.arcTo = Arrays.copyOf(builder.arcTo, arcCount);
+        this.arcWeight = Arrays.copyOf(builder.arcWeight, arcCount);
+        this.arcOriginal = Arrays.copyOf(builder.arcOriginal, arcCount);
+        this.arcChildFirst = Arrays.copyOf(builder.arcChildFirst, arcCount);
+        this.arcChildSecond = Arrays.copyOf(builder.arcChildSecond, arcCount);
+
+        int n = graph.getNodeCount();
+        this.upOffsets = new int[n + 1];
+        this.downOffsets = new int[n + 1];
+        for (int arc = 0; arc < arcCount; arc++) {
+            if (rank[arcFrom[arc]] < rank[arcTo[arc]]) {
+                upOffsets[arcFrom[arc] + 1]++;
+            } else {
+                downOffsets[arcTo[arc] + 1]++;
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            upOffsets[v + 1] += upOffsets[v];
+            downOffsets[v + 1] += downOffsets[v];
+        }
+        this.upArcs = new int[upOffsets[n]];
+        this.downArcs = new int[downOffsets[n]];
+        int[] upFill = Arrays.copyOf(upOffsets, n);
+        int[] downFill = Arrays.copyOf(downOffsets, n);
+        for (int arc = 0; arc < arcCount; arc++) {
+            if (rank[arcFrom[arc]] < rank[arcTo[arc]]) {
+                upArcs[upFill[arcFrom[arc]]++] = arc;
+            } else {
+                downArcs[downFill[arcTo[arc]]++] = arc;
+            }
+        }
+    }
+
+    /**
+     * Contract every node of the snapshot for one transport mode
+     * Metric-dependent: rebuild when the snapshot's weights change
+     */
+    public static ContractionHierarchy build(CompactGraph graph, String transportMode) {
+        Builder builder = new Builder(graph, graph.weights(transportMode));
+        builder.contractAll();
+        return new ContractionHierarchy(graph, transportMode, builder);
+    }
+
+    public CompactGraph getGraph() { return graph; }
+    public String getTransportMode() { return transportMode; }
+    public int getShortcutCount() {
+        int shortcuts = 0;
+        for (int original : arcOriginal) {
+            if (original < 0) shortcuts++;
+        }
+        return shortcuts;
+    }
+
+    /**
+     * Shortest route between two locations, unpacked back to real edges
+     */
+    public Route findShortestPath(Location source, Location destination) {
+        return findShortestPath(source, destination, SearchDeadline.NONE);
+    }
+
+    /**
+     * Same query; the upward searches check the deadline and are abandoned with CancellationException
+     */
+    public Route findShortestPath(Location source, Location destination, SearchDeadline deadline) {
+        int s = graph.indexOf(source);
+        int t = graph.indexOf(destination);
+        if (s < 0 || t < 0) return null;
+
+        try (SearchWorkspace forward = SearchWorkspace.acquire(graph.getNodeCount());
+             SearchWorkspace backward = SearchWorkspace.acquire(graph.getNodeCount())) {
+            int meeting = query(s, t, forward, backward, deadline);
+            if (meeting < 0) return null;
+
+            List<Integer> hierarchyArcs = new ArrayList<>();
+            for (int v = meeting; v != s; v = arcFrom[forward.predecessorArc(v)]) {
+                hierarchyArcs.add(forward.predecessorArc(v));
+            }
+            Collections.reverse(hierarchyArcs);
+            for (int v = meeting; v != t; v = arcTo[backward.predecessorArc(v)]) {
+                hierarchyArcs.add(backward.predecessorArc(v));
+            }
+
+            List<Integer> arcs = new ArrayList<>();
+            for (int arc : hierarchyArcs) {
+                unpack(arc, arcs);
+            }
+            int[] path = new int[arcs.size()];
+            for (int i = 0; i < path.length; i++) path[i] = arcs.get(i);
+            return graph.buildRoute(s, path, path.length, transportMode);
+        }
+    }
+
+    /**
+     * Shortest-path cost only, without unpacking
+     */
+    public double distance(int source, int target) {
+        try (SearchWorkspace forward = SearchWorkspace.acquire(graph.getNodeCount());
+             SearchWorkspace backward = SearchWorkspace.acquire(graph.getNodeCount())) {
+            int meeting = query(source, target, forward, backward, SearchDeadline.NONE);
+            return meeting < 0 ? Double.POSITIVE_INFINITY
+                    : forward.distance(meeting) + backward.distance(meeting);
+        }
+    }
+
+    /**
+     * Many-to-many distances with buckets: one backward upward search per target leaves
+     * (target, distance) entries at every node it settles, then one forward upward search per
+     * source scans the buckets of the nodes it settles. Searches of each phase run in parallel;
+     * a negative node id gives an all-infinite row or column
+     */
+    public double[][] distanceMatrix(int[] sources, int[] targets, ForkJoinPool pool) {
+        int n = graph.getNodeCount();
+
+        // Backward phase: each target's upward search space with distances
+        double[][] targetDistances = new double[targets.length][];
+        int[][] targetNodes = new int[targets.length][];
+        forEachIndex(pool, targets.length, column -> {
+            try (SearchWorkspace workspace = SearchWorkspace.acquire(n)) {
+                int[] settled = upwardSearch(targets[column], false, workspace);
+                targetNodes[column] = settled;
+                targetDistances[column] = new double[settled.length];
+                for (int i = 0; i < settled.length; i++) targetDistances[column][i] = workspace.distance(settled[i]);
+            }
+        });
+
+        // Buckets in CSR form, keyed by meeting node
+        int[] bucketOffsets = new int[n + 1];
+        for (int[] nodes : targetNodes) {
+            for (int v : nodes) bucketOffsets[v + 1]++;
+        }
+        for (int v = 0; v < n; v++) bucketOffsets[v + 1] += bucketOffsets[v];
+        int[] bucketColumns = new int[bucketOffsets[n]];
+        double[] bucketDistances = new double[bucketOffsets[n]];
+        int[] fill = Arrays.copyOf(bucketOffsets, n);
+        for (int column = 0; column < targets.length; column++) {
+            for (int i = 0; i < targetNodes[column].length; i++) {
+                int slot = fill[targetNodes[column][i]]++;
+                bucketColumns[slot] = column;
+                bucketDistances[slot] = targetDistances[column][i];
+            }
+        }
+
+        // Forward phase: every row is independent
+        double[][] matrix = new double[sources.length][targets.length];
+        forEachIndex(pool, sources.length, row -> {
+            double[] distances = matrix[row];
+            Arrays.fill(distances, Double.POSITIVE_INFINITY);
+            try (SearchWorkspace workspace = SearchWorkspace.acquire(n)) {
+                for (int u : upwardSearch(sources[row], true, workspace)) {
+                    double du = workspace.distance(u);
+                    for (int i = bucketOffsets[u]; i < bucketOffsets[u + 1]; i++) {
+                        distances[bucketColumns[i]] = Math.min(distances[bucketColumns[i]], du + bucketDistances[i]);
+                    }
+                }
+            }
+        });
+        return matrix;
+    }
+
+    /**
+     * Complete upward search from one node; returns the settled nodes (distances stay in the workspace)
+     */
+    private int[] upwardSearch(int root, boolean forward, SearchWorkspace workspace) {
+        if (root < 0) return new int[0];
+        int[] offsets = forward ? upOffsets : downOffsets;
+        int[] arcs = forward ? upArcs : downArcs;
+        int[] next = forward ? arcTo : arcFrom;
+
+        IntList settled = new IntList();
+        IndexedMinHeap heap = workspace.heap();
+        workspace.start(root, 0.0);
+        while (!heap.isEmpty()) {
+            int u = heap.poll();
+            workspace.settle(u);
+            settled.add(u);
+            double du = workspace.distance(u);
+            for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                int arc = arcs[i];
+                double dv = du + arcWeight[arc];
+                workspace.relax(next[arc], dv, arc, dv);
+            }
+        }
+        return settled.toArray();
+    }
+
+    private static void forEachIndex(ForkJoinPool pool, int count, IntConsumer action) {
+        if (pool == null || count < 2) {
+            IntStream.range(0, count).forEach(action);
+        } else {
+            pool.submit(() -> IntStream.range(0, count).parallel().forEach(action)).join();
+        }
+    }
+
+    /**
+     * Bidirectional upward search; returns the highest node of the shortest path or -1
+     * A side stops once its smallest key reaches the best meeting cost, since every
+     * remaining upward path from it can only be longer
+     */
+    private int query(int s, int t, SearchWorkspace forward, SearchWorkspace backward, SearchDeadline deadline) {
+        forward.start(s, 0.0);
+        backward.start(t, 0.0);
+        IndexedMinHeap forwardHeap = forward.heap();
+        IndexedMinHeap backwardHeap = backward.heap();
+
+        double best = Double.POSITIVE_INFINITY;
+        int meeting = -1;
+        int settled = 0;
+        while (true) {
+            boolean forwardActive = forwardHeap.peekKey() < best;
+            boolean backwardActive = backwardHeap.peekKey() < best;
+            if (!forwardActive && !backwardActive) break;
+
+            boolean stepForward = forwardActive
+                    && (!backwardActive || forwardHeap.peekKey() <= backwardHeap.peekKey());
+            SearchWorkspace self = stepForward ? forward : backward;
+            SearchWorkspace other = stepForward ? backward : forward;
+            int[] offsets = stepForward ? upOffsets : downOffsets;
+            int[] arcs = stepForward ? upArcs : downArcs;
+            int[] next = stepForward ? arcTo : arcFrom;
+
+            deadline.checkEvery(++settled);
+            int u = self.heap().poll();
+            self.settle(u);
+            double du = self.distance(u);
+            if (du + other.distance(u) < best) {
+                best = du + other.distance(u);
+                meeting = u;
+            }
+
+            for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                int arc = arcs[i];
+                double dv = du + arcWeight[arc];
+                self.relax(next[arc], dv, arc, dv);
+            }
+        }
+        return meeting;
+    }
+
+    /**
+     * Expand a hierarchy arc into the snapshot arcs it stands for, in path order
+     */
+    private void unpack(int arc, List<Integer> out) {
+        Deque<Integer> stack = new ArrayDeque<>();
+        stack.push(arc);
+        while (!stack.isEmpty()) {
+            int current = stack.pop();
+            if (arcOriginal[current] >= 0) {
+                out.add(arcOriginal[current]);
+            } else {
+                stack.push(arcChildSecond[current]);
+                stack.push(arcChildFirst[current]);
+            }
+        }
+    }
+
+    /**
+     * Mutable contraction state; discarded once the hierarchy is frozen
+     */
+    private static class Builder {
+        private final CompactGraph graph;
+        private final int n;
+        private final int[] rank;
+        private final boolean[] contracted;
+        private final int[] contractedNeighbors;
+        private final IntList[] outArcs;
+        private final IntList[] inArcs;
+
+        private int arcCount;
+        private int[] arcFrom;
+        private int[] arcTo;
+        private double[] arcWeight;
+        private int[] arcOriginal;
+        private int[] arcChildFirst;
+        private int[] arcChildSecond;
+
+        Builder(CompactGraph graph, double[] weights) {
+            this.graph = graph;
+            this.n = graph.getNodeCount();
+            this.rank = new int[n];
+            this.contracted = new boolean[n];
+            this.contractedNeighbors = new int[n];
+            this.outArcs = new IntList[n];
+            this.inArcs = new IntList[n];
+            for (int v = 0; v < n; v++) {
+                outArcs[v] = new IntList();
+                inArcs[v] = new IntList();
+            }
+
+            int capacity = Math.max(16, graph.getArcCount() * 2);
+            arcFrom = new int[capacity];
+            arcTo = new int[capacity];
+            arcWeight = new double[capacity];
+            arcOriginal = new int[capacity];
+            arcChildFirst = new int[capacity];
+            arcChildSecond = new int[capacity];
+
+            // Open, non-loop arcs; parallel arcs collapse to the cheapest
+            int[] sources = graph.getSources();
+            int[] targets = graph.getTargets();
+            for (int arc = 0; arc < weights.length; arc++) {
+                if (weights[arc] == Double.POSITIVE_INFINITY || sources[arc] == targets[arc]) continue;
+                addOrImproveArc(sources[arc], targets[arc], weights[arc], arc, -1, -1);
+            }
+        }
+
+        void contractAll() {
+            IndexedMinHeap queue = new IndexedMinHeap(n);
+            try (SearchWorkspace witness = SearchWorkspace.acquire(n)) {
+                for (int v = 0; v < n; v++) {
+                    queue.insert(v, priority(v, witness));
+                }
+
+                int order = 0;
+                while (!queue.isEmpty()) {
+                    // Lazy updates: re-evaluate the cheapest node and requeue it if it got worse
+                    int v = queue.poll();
+                    double current = priority(v, witness);
+                    if (!queue.isEmpty() && current > queue.peekKey()) {
+                        queue.insert(v, current);
+                        continue;
+                    }
+                    contract(v, witness, true);
+                    contracted[v] = true;
+                    rank[v] = order++;
+                }
+            }
+        }
+
+        /**
+         * Edge difference (shortcuts added minus arcs removed) plus contracted neighbours,
+         * which spreads contraction evenly across the graph
+         */
+        private double priority(int v, SearchWorkspace witness) {
+            int shortcuts = contract(v, witness, false);
+            return shortcuts - (outArcs[v].size + inArcs[v].size) + contractedNeighbors[v];
+        }
+
+        /**
+         * Count (or add) the shortcuts needed to bypass v among the remaining nodes
+         */
+        private int contract(int v, SearchWorkspace witness, boolean apply) {
+            int shortcuts = 0;
+            IntList in = inArcs[v];
+            IntList out = outArcs[v];
+
+            double maxOut = 0;
+            for (int j = 0; j < out.size; j++) {
+                maxOut = Math.max(maxOut, arcWeight[out.data[j]]);
+            }
+
+            for (int i = 0; i < in.size; i++) {
+                int inArc = in.data[i];
+                int u = arcFrom[inArc];
+                double viaV = arcWeight[inArc];
+                witnessSearch(u, v, viaV + maxOut, witness);
+
+                for (int j = 0; j < out.size; j++) {
+                    int outArc = out.data[j];
+                    int w = arcTo[outArc];
+                    if (w == u) continue;
+                    double shortcutWeight = viaV + arcWeight[outArc];
+                    if (witness.distance(w) <= shortcutWeight) continue; // witness path avoids v
+
+                    shortcuts++;
+                    if (apply) {
+                        addOrImproveArc(u, w, shortcutWeight, -1, inArc, outArc);
+                    }
+                }
+            }
+
+            if (apply) {
+                // Detach v so later witness searches and degrees only see remaining nodes
+                for (int i = 0; i < in.size; i++) {
+                    int u = arcFrom[in.data[i]];
+                    outArcs[u].remove(in.data[i]);
+                    contractedNeighbors[u]++;
+                }
+                for (int j = 0; j < out.size; j++) {
+                    int w = arcTo[out.data[j]];
+                    inArcs[w].remove(out.data[j]);
+                    contractedNeighbors[w]++;
+                }
+            }
+            return shortcuts;
+        }
+
+        /**
+         * Dijkstra from u that ignores v, bounded by distance and settle count
+         */
+        private void witnessSearch(int u, int skip, double limit, SearchWorkspace witness) {
+            witness.beginQuery();
+            witness.start(u, 0.0);
+            IndexedMinHeap heap = witness.heap();
+            int settled = 0;
+            while (!heap.isEmpty() && settled++ < WITNESS_SETTLE_LIMIT) {
+                int x = heap.poll();
+                witness.settle(x);
+                double dx = witness.distance(x);
+                if (dx > limit) break;
+
+                IntList arcs = outArcs[x];
+                for (int i = 0; i < arcs.size; i++) {
+                    int arc = arcs.data[i];
+                    int y = arcTo[arc];
+                    if (y == skip) continue;
+                    witness.relax(y, dx + arcWeight[arc], arc, dx + arcWeight[arc]);
+                }
+            }
+        }
+
+        private void addOrImproveArc(int from, int to, double weight, int original, int childFirst, int childSecond) {
+            IntList out = outArcs[from];
+            for (int i = 0; i < out.size; i++) {
+                int arc = out.data[i];
+                if (arcTo[arc] == to) {
+                    if (weight < arcWeight[arc]) {
+                        arcWeight[arc] = weight;
+                        arcOriginal[arc] = original;
+                        arcChildFirst[arc] = childFirst;
+                        arcChildSecond[arc] = childSecond;
+                    }
+                    return;
+                }
+            }
+
+            if (arcCount == arcFrom.length) {
+                int capacity = arcCount * 2;
+                arcFrom = Arrays.copyOf(arcFrom, capacity);
+                arcTo = Arrays.copyOf(arcTo, capacity);
+                arcWeight = Arrays.copyOf(arcWeight, capacity);
+                arcOriginal = Arrays.copyOf(arcOriginal, capacity);
+                arcChildFirst = Arrays.copyOf(arcChildFirst, capacity);
+                arcChildSecond = Arrays.copyOf(arcChildSecond, capacity);
+            }
+            int arc = arcCount++;
+            arcFrom[arc] = from;
+            arcTo[arc] = to;
+            arcWeight[arc] = weight;
+            arcOriginal[arc] = original;
+            arcChildFirst[arc] = childFirst;
+            arcChildSecond[arc] = childSecond;
+            out.add(arc);
+            inArcs[to].add(arc);
+        }
+    }
+
+    /**
+     * Growable int array with unordered removal
+     */
+    private static class IntList {
+        int[] data = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == data.length) data = Arrays.copyOf(data, size * 2);
+            data[size++] = value;
+        }
+
+        void remove(int value) {
+            for (int i = 0; i < size; i++) {
+                if (data[i] == value) {
+                    data[i] = data[--size];
+                    return;
+                }
+            }
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+}
@@ -2,6 +2,7 @@
  * Dijkstra's algorithm implementation for shortest path
  */
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 class DijkstraPathfinder {
 
     public static class PathResult {
@@ -67,71 +68,132 @@ class DijkstraPathfinder {
     }
 
     /**
-     * Find multiple shortest paths using modified Dijkstra
+     * Allocation-free Dijkstra over a CSR snapshot
+     * Indexed 4-ary heap with decrease-key, primitive arrays from a pooled per-thread workspace
      */
-    public static List<Route> findMultiplePaths(CampusGraph graph, Location source,
-                                                Location destination, String transportMode, int maxPaths) {
-        List<Route> routes = new ArrayList<>();
-        Set<List<Location>> foundPaths = new HashSet<>();
-
-        // Use k-shortest paths algorithm (Yen's algorithm simplified)
-        PathResult firstPath = findShortestPath(graph, source, destination, transportMode);
-        if (firstPath.route != null) {
-            routes.add(firstPath.route);
-            foundPaths.add(firstPath.route.getPath());
-        }
+    public static Route findShortestPathIndexed(CompactGraph graph, Location source,
+                                                Location destination, String transportMode) {
+        return findShortestPathIndexed(graph, source, destination, transportMode, SearchDeadline.NONE);
+    }
 
-        // For additional paths, temporarily remove edges and find alternatives
-        for (int i = 1; i < maxPaths && i < 3; i++) {
-            Route alternativePath = findAlternativePath(graph, source, destination,
-                    transportMode, foundPaths);
-            if (alternativePath != null) {
-                routes.add(alternativePath);
-                foundPaths.add(alternativePath.getPath());
-            }
+    /**
+     * Same search, abandoned with CancellationException once the deadline expires
+     */
+    public static Route findShortestPathIndexed(CompactGraph graph, Location source, Location destination,
+                                                String transportMode, SearchDeadline deadline) {
+        int sourceNode = graph.indexOf(source);
+        int destinationNode = graph.indexOf(destination);
+        if (sourceNode < 0 || destinationNode < 0) return null;
+
+        try (SearchWorkspace workspace = SearchWorkspace.acquire(graph.getNodeCount())) {
+            double distance = search(graph, graph.weights(transportMode), sourceNode, destinationNode, workspace,
+                    deadline);
+            if (distance == Double.POSITIVE_INFINITY) return null;
+            return graph.buildRoute(sourceNode, destinationNode, workspace.predecessorArcs(), transportMode);
         }
+    }
 
-        return routes;
+    /**
+     * Indexed-heap Dijkstra core; stops once the target is settled (target < 0 settles everything)
+     * Distances and predecessor arcs are left in the workspace for the caller
+     */
+    static double search(CompactGraph graph, double[] weights, int source, int target,
+                         SearchWorkspace workspace) {
+        return search(graph, weights, source, target, workspace, SearchDeadline.NONE);
     }
 
-    private static Route findAlternativePath(CampusGraph graph, Location source,
-                                             Location destination, String transportMode,
-                                             Set<List<Location>> excludePaths) {
-        // Build a set of directed edges to penalize
-        Set<String> penalized = new HashSet<>();
-        for (List<Location> p : excludePaths) {
-            for (int i = 0; i < p.size() - 1; i++) {
-                penalized.add(p.get(i).getId() + "->" + p.get(i + 1).getId());
+    static double search(CompactGraph graph, double[] weights, int source, int target,
+                         SearchWorkspace workspace, SearchDeadline deadline) {
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
+        IndexedMinHeap heap = workspace.heap();
+
+        workspace.start(source, 0.0);
+        int settled = 0;
+        while (!heap.isEmpty()) {
+            int u = heap.poll();
+            workspace.settle(u);
+            if (u == target) break;
+            deadline.checkEvery(++settled);
+
+            double du = workspace.distance(u);
+            for (int arc = offsets[u]; arc < offsets[u + 1]; arc++) {
+                double newDistance = du + weights[arc]; // closed roads are infinite and never improve
+                if (newDistance < Double.POSITIVE_INFINITY) {
+                    workspace.relax(targets[arc], newDistance, arc, newDistance);
+                }
             }
         }
 
-        Map<Location, Double> distances = new HashMap<>();
-        Map<Location, Location> predecessors = new HashMap<>();
-        PriorityQueue<LocationDistance> pq = new PriorityQueue<>();
-        Set<Location> visited = new HashSet<>();
+        return target >= 0 ? workspace.distance(target) : 0.0;
+    }
 
-        for (Location loc : graph.getAllLocations()) distances.put(loc, Double.POSITIVE_INFINITY);
-        distances.put(source, 0.0);
-        pq.offer(new LocationDistance(source, 0.0));
+    /**
+     * Same search over incoming arcs: distances *to* the root
+     * predecessorArc[u] is then the arc leaving u on its shortest path to the root
+     */
+    static double searchBackward(CompactGraph graph, double[] weights, int root, int target,
+                                 SearchWorkspace workspace) {
+        return searchBackward(graph, weights, root, target, workspace, SearchDeadline.NONE);
+    }
 
-        while (!pq.isEmpty()) {
-            LocationDistance cur = pq.poll();
-            if (visited.contains(cur.location)) continue;
-            visited.add(cur.location);
-            if (cur.location.equals(destination)) break;
-
-            for (Edge edge : graph.getNeighbors(cur.location)) {
-                if (edge.isClosed()) continue;
-                Location nb = edge.getDestination();
-                double w = transportMode.equals("walking") ? edge.getWalkingTime() : edge.getDrivingTime();
-                String key = cur.location.getId()+"->"+nb.getId();
-                if (penalized.contains(key)) w *= 1.5; // discourage repeated edge usage
-                double nd = distances.get(cur.location) + w;
-                if (nd < distances.get(nb)) { distances.put(nb, nd); predecessors.put(nb, cur.location); pq.offer(new LocationDistance(nb, nd)); }
+    static double searchBackward(CompactGraph graph, double[] weights, int root, int target,
+                                 SearchWorkspace workspace, SearchDeadline deadline) {
+        int[] reverseOffsets = graph.getReverseOffsets();
+        int[] reverseArcs = graph.getReverseArcs();
+        int[] sources = graph.getSources();
+        IndexedMinHeap heap = workspace.heap();
+
+        workspace.start(root, 0.0);
+        int settled = 0;
+        while (!heap.isEmpty()) {
+            int v = heap.poll();
+            workspace.settle(v);
+            if (v == target) break;
+            deadline.checkEvery(++settled);
+
+            double dv = workspace.distance(v);
+            for (int i = reverseOffsets[v]; i < reverseOffsets[v + 1]; i++) {
+                int arc = reverseArcs[i];
+                double newDistance = dv + weights[arc];
+                if (newDistance < Double.POSITIVE_INFINITY) {
+                    workspace.relax(sources[arc], newDistance, arc, newDistance);
+                }
             }
         }
 
-        return reconstructPath(graph, predecessors, source, destination, transportMode);
+        return target >= 0 ? workspace.distance(target) : 0.0;
+    }
+
+    /**
+     * Find up to maxPaths loopless routes in cost order (Yen's algorithm, parallel spur searches)
+     */
+    public static List<Route> findMultiplePaths(CampusGraph graph, Location source,
+                                                Location destination, String transportMode, int maxPaths) {
+        return findMultiplePaths(graph, source, destination, transportMode, maxPaths, SearchDeadline.NONE);
+    }
+
+    public static List<Route> findMultiplePaths(CampusGraph graph, Location source, Location destination,
+                                                String transportMode, int maxPaths, SearchDeadline deadline) {
+        return findMultiplePaths(graph.snapshot(), source, destination, transportMode, maxPaths, deadline);
+    }
+
+    /**
+     * Same, on a pinned snapshot
+     */
+    public static List<Route> findMultiplePaths(CompactGraph graph, Location source, Location destination,
+                                                String transportMode, int maxPaths, SearchDeadline deadline) {
+        return findMultiplePaths(graph, source, destination, transportMode, maxPaths, ForkJoinPool.commonPool(),
+                deadline);
+    }
+
+    /**
+     * Same, with the spur searches fanned out on the given pool
+     */
+    public static List<Route> findMultiplePaths(CompactGraph graph, Location source, Location destination,
+                                                String transportMode, int maxPaths, ForkJoinPool pool,
+                                                SearchDeadline deadline) {
+        return KShortestPathfinder.findPaths(graph, source, destination, transportMode, maxPaths, pool, deadline);
     }
 
     private static Route reconstructPath(CampusGraph graph, Map<Location, Location> predecessors,
@@ -8,8 +8,8 @@ class Edge {
     private double walkingTime; // in minutes
     private double drivingTime; // in minutes
     private boolean isAccessible; // for disabled access
-    private boolean isClosed; // for road closures
-    private double trafficMultiplier; // 1.0 = normal, >1.0 = heavy traffic
+    private volatile boolean isClosed; // for road closures
+    private volatile double trafficMultiplier; // 1.0 = normal, >1.0 = heavy traffic
     private String roadName;
 
     public Edge(Location source, Location destination, double distance, double walkingTime, double drivingTime, String roadName) {
@@ -30,6 +30,8 @@ class Edge {
     public double getDistance() { return distance; }
     public double getWalkingTime() { return walkingTime * trafficMultiplier; }
     public double getDrivingTime() { return drivingTime * trafficMultiplier; }
+    public double getBaseWalkingTime() { return walkingTime; } // free-flow, before traffic
+    public double getBaseDrivingTime() { return drivingTime; }
     public boolean isAccessible() { return isAccessible; }
     public boolean isClosed() { return isClosed; }
     public String getRoadName() { return roadName; }
@@ -0,0 +1,115 @@
+/**
+ * Executor strategy for a routing engine
+ * Requests (orchestration that blocks on futures) and searches (CPU-bound pathfinding) get separate
+ * executors, so a request waiting on its sub-tasks never holds a thread those sub-tasks need.
+ * "virtual" runs each request on its own virtual thread, so thousands can be in flight while the
+ * searches share one pool sized to the CPUs; "platform" keeps a fixed search pool and runs
+ * requests on cached platform threads. Both own a fork-join pool of the same size for data-parallel
+ * steps inside a search or a rebuild, and a single background thread for periodic maintenance such
+ * as refreshing traffic conditions, so nothing the engine runs lands on the shared common pool.
+ * Virtual threads make JDK 21 the minimum for the whole tree
+ */
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+class EngineExecutors {
+    public static final String PROPERTY = "ugnavigate.executor"; // "virtual" or "platform"
+
+    private final String mode;
+    private final ExecutorService requests;
+    private final ExecutorService searches;
+    private final ForkJoinPool parallel;
+    private final ScheduledExecutorService scheduler;
+
+    private EngineExecutors(String mode, ExecutorService requests, int searchThreads) {
+        this.mode = mode;
+        this.requests = requests;
+        this.searches = Executors.newFixedThreadPool(searchThreads, daemonThreads("route-search-"));
+        this.parallel = new ForkJoinPool(searchThreads, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("route-parallel-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads("route-maintenance-"));
+    }
+
+    /**
+     * Virtual thread per request; searches on a bounded pool of searchThreads platform threads
+     */
+    public static EngineExecutors virtualThreads(int searchThreads) {
+        return new EngineExecutors("virtual",
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("route-request-", 0).factory()),
+                searchThreads);
+    }
+
+    /**
+     * Fixed search pool of searchThreads; requests on cached platform threads
+     */
+    public static EngineExecutors platformThreads(int searchThreads) {
+        return new EngineExecutors("platform",
+                Executors.newCachedThreadPool(daemonThreads("route-request-")), searchThreads);
+    }
+
+    /**
+     * Strategy named by the ugnavigate.executor system property (default "platform")
+     * Virtual mode sizes the search pool to the available processors
+     */
+    public static EngineExecutors fromSystemProperty(int defaultSearchThreads) {
+        if ("virtual".equalsIgnoreCase(System.getProperty(PROPERTY))) {
+            return virtualThreads(Runtime.getRuntime().availableProcessors());
+        }
+        return platformThreads(defaultSearchThreads);
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, prefix + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public String getMode() { return mode; }
+
+    /**
+     * Runs whole requests; tasks here may block on futures from searches()
+     */
+    public ExecutorService requests() { return requests; }
+
+    /**
+     * Runs search tasks only; they must never block on other search tasks
+     */
+    public ExecutorService searches() { return searches; }
+
+    /**
+     * Fork-join pool for data-parallel work inside one search or rebuild: matrices, all-pairs
+     * repair, overlay customization, k-shortest spur fan-out and the backward half of a
+     * bidirectional search. Its tasks never wait on searches(), so searches may join them
+     */
+    public ForkJoinPool parallel() { return parallel; }
+
+    /**
+     * One background thread for periodic engine maintenance; tasks run one at a time
+     */
+    public ScheduledExecutorService scheduler() { return scheduler; }
+
+    /**
+     * Stop accepting work and wait up to timeoutMillis for running tasks, then interrupt them
+     */
+    public void shutdown(long timeoutMillis) {
+        scheduler.shutdownNow(); // periodic tasks would only reschedule themselves
+        requests.shutdown();
+        searches.shutdown();
+        parallel.shutdown();
+        try {
+            if (!requests.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) requests.shutdownNow();
+            if (!searches.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) searches.shutdownNow();
+            if (!parallel.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) parallel.shutdownNow();
+        } catch (InterruptedException e) {
+            requests.shutdownNow();
+            searches.shutdownNow();
+            parallel.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
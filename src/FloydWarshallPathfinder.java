@@ -1,62 +1,106 @@
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 
 /*
         * Floyd-Warshall algorithm for all-pairs shortest path
  * Useful for preprocessing and caching distances between all locations
  */
 class FloydWarshallPathfinder {
+    private static final int TILE_SIZE = 64; // 64 x 64 floats = 16 KB, three tiles fit in L1/L2
 
+    /**
+     * Flat row-major all-pairs tables over a CSR snapshot's node ids
+     * Successors are next-hop node ids, stored as short when the graph is small enough
+     */
     public static class AllPairsResult {
-        public double[][] distances;
-        public Location[][] next;
-        public List<Location> locations;
-
-        public AllPairsResult(double[][] distances, Location[][] next, List<Location> locations) {
-            this.distances = distances;
-            this.next = next;
-            this.locations = locations;
+        private final CompactGraph graph;
+        private final String transportMode;
+        private final int nodeCount;
+        final float[] distances;  // [i * n + j]
+        final short[] shortNext;  // [i * n + j] next hop, -1 when unreachable (n <= Short.MAX_VALUE)
+        final int[] intNext;      // same, used for larger graphs
+
+        AllPairsResult(CompactGraph graph, String transportMode) {
+            int n = graph.getNodeCount();
+            this.graph = graph;
+            this.transportMode = transportMode;
+            this.nodeCount = n;
+            this.distances = new float[n * n];
+            this.shortNext = n <= Short.MAX_VALUE ? new short[n * n] : null;
+            this.intNext = shortNext == null ? new int[n * n] : null;
         }
 
-        public Route getPath(Location source, Location destination, String transportMode, CampusGraph graph) {
-            // Build index map once for O(1) lookups
-            Map<Location, Integer> indexByLocation = new HashMap<>();
-            for (int i = 0; i < locations.size(); i++) {
-                indexByLocation.put(locations.get(i), i);
+        /**
+         * Copy of another table re-bound to a snapshot with the same topology (for repair)
+         */
+        AllPairsResult(AllPairsResult other, CompactGraph graph) {
+            this.graph = graph;
+            this.transportMode = other.transportMode;
+            this.nodeCount = other.nodeCount;
+            this.distances = other.distances.clone();
+            this.shortNext = other.shortNext != null ? other.shortNext.clone() : null;
+            this.intNext = other.intNext != null ? other.intNext.clone() : null;
+        }
+
+        public CompactGraph getGraph() { return graph; }
+        public String getTransportMode() { return transportMode; }
+        public int getNodeCount() { return nodeCount; }
+
+        public double getDistance(Location source, Location destination) {
+            int i = graph.indexOf(source);
+            int j = graph.indexOf(destination);
+            if (i < 0 || j < 0) return Double.POSITIVE_INFINITY;
+            return distances[i * nodeCount + j];
+        }
+
+        int successor(int i, int j) {
+            return shortNext != null ? shortNext[i * nodeCount + j] : intNext[i * nodeCount + j];
+        }
+
+        void setSuccessor(int i, int j, int node) {
+            if (shortNext != null) {
+                shortNext[i * nodeCount + j] = (short) node;
+            } else {
+                intNext[i * nodeCount + j] = node;
             }
-            Integer srcIndex = indexByLocation.get(source);
-            Integer destIndex = indexByLocation.get(destination);
+        }
 
-            if (srcIndex == null || destIndex == null || distances[srcIndex][destIndex] == Double.POSITIVE_INFINITY) {
+        public Route getPath(Location source, Location destination, String transportMode, CampusGraph graph) {
+            int srcIndex = this.graph.indexOf(source);
+            int destIndex = this.graph.indexOf(destination);
+            if (srcIndex < 0 || destIndex < 0 || distances[srcIndex * nodeCount + destIndex] == Float.POSITIVE_INFINITY) {
                 return null;
             }
 
-            List<Location> path = new ArrayList<>();
-            Location current = source;
-            path.add(current);
-
-            while (!current.equals(destination)) {
-                Integer currentIndex = indexByLocation.get(current);
-                current = next[currentIndex][destIndex];
-                if (current == null) break;
-                path.add(current);
+            // Follow next hops, taking the cheapest open arc for each (roads may be parallel)
+            double[] weights = this.graph.weights(this.transportMode);
+            int[] arcs = new int[nodeCount];
+            int arcCount = 0;
+            for (int current = srcIndex; current != destIndex; ) {
+                int hop = successor(current, destIndex);
+                int arc = cheapestArc(weights, current, hop);
+                if (hop < 0 || arc < 0 || arcCount == nodeCount) return null;
+                arcs[arcCount++] = arc;
+                current = hop;
             }
 
-            // Convert to Route object
-            Route route = new Route(transportMode);
-            for (int i = 0; i < path.size(); i++) {
-                route.addLocation(path.get(i));
+            return this.graph.buildRoute(srcIndex, arcs, arcCount, transportMode);
+        }
 
-                if (i < path.size() - 1) {
-                    for (Edge edge : graph.getNeighbors(path.get(i))) {
-                        if (edge.getDestination().equals(path.get(i + 1))) {
-                            route.addEdge(edge);
-                            break;
-                        }
-                    }
+        private int cheapestArc(double[] weights, int from, int to) {
+            if (to < 0) return -1;
+            int[] offsets = graph.getOffsets();
+            int[] targets = graph.getTargets();
+            int best = -1;
+            for (int arc = offsets[from]; arc < offsets[from + 1]; arc++) {
+                if (targets[arc] == to && weights[arc] != Double.POSITIVE_INFINITY
+                        && (best < 0 || weights[arc] < weights[best])) {
+                    best = arc;
                 }
             }
-
-            return route;
+            return best;
         }
     }
 
@@ -65,45 +109,119 @@ class FloydWarshallPathfinder {
      * Time complexity: O(V^3), suitable for smaller graphs or preprocessing
      */
     public static AllPairsResult computeAllPairsShortestPaths(CampusGraph graph, String transportMode) {
-        List<Location> locations = new ArrayList<>(graph.getAllLocations());
-        int n = locations.size();
+        return computeAllPairsShortestPaths(graph.snapshot(), transportMode, ForkJoinPool.commonPool());
+    }
 
-        double[][] distances = new double[n][n];
-        Location[][] next = new Location[n][n];
+    /**
+     * Blocked (tiled) Floyd-Warshall: per diagonal tile, the dependent row and column tiles
+     * and then all remaining tiles are independent, so each phase runs in parallel on the pool
+     */
+    public static AllPairsResult computeAllPairsShortestPaths(CompactGraph graph, String transportMode,
+                                                              ForkJoinPool pool) {
+        return computeAllPairsShortestPaths(graph, transportMode, pool, SearchDeadline.NONE);
+    }
 
-        // Initialize distance matrix
+    /**
+     * Same computation, abandoned with CancellationException once the deadline expires;
+     * checked before every tile, so all pool workers stop within one tile of work
+     */
+    public static AllPairsResult computeAllPairsShortestPaths(CompactGraph graph, String transportMode,
+                                                              ForkJoinPool pool, SearchDeadline deadline) {
+        AllPairsResult result = new AllPairsResult(graph, transportMode);
+        int n = result.nodeCount;
+        float[] d = result.distances;
+
+        // Initialize from the arcs directly (O(V^2 + E)); parallel roads keep the cheapest
+        Arrays.fill(d, Float.POSITIVE_INFINITY);
         for (int i = 0; i < n; i++) {
-            for (int j = 0; j < n; j++) {
-                distances[i][j] = (i == j) ? 0 : Double.POSITIVE_INFINITY;
-            }
+            d[i * n + i] = 0f;
+            for (int j = 0; j < n; j++) result.setSuccessor(i, j, i == j ? i : -1);
         }
-
-        // Fill in direct edges
+        double[] weights = graph.weights(transportMode);
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
         for (int i = 0; i < n; i++) {
-            Location source = locations.get(i);
-            for (Edge edge : graph.getNeighbors(source)) {
-                if (!edge.isClosed()) {
-                    int j = locations.indexOf(edge.getDestination());
-                    double weight = transportMode.equals("walking") ?
-                            edge.getWalkingTime() : edge.getDrivingTime();
-                    distances[i][j] = weight;
-                    next[i][j] = edge.getDestination();
+            for (int arc = offsets[i]; arc < offsets[i + 1]; arc++) {
+                int j = targets[arc];
+                if (weights[arc] != Double.POSITIVE_INFINITY && i != j && (float) weights[arc] < d[i * n + j]) {
+                    d[i * n + j] = (float) weights[arc];
+                    result.setSuccessor(i, j, j);
                 }
             }
         }
 
-        // Floyd-Warshall main algorithm
-        for (int k = 0; k < n; k++) {
-            for (int i = 0; i < n; i++) {
-                for (int j = 0; j < n; j++) {
-                    if (distances[i][k] + distances[k][j] < distances[i][j]) {
-                        distances[i][j] = distances[i][k] + distances[k][j];
-                        next[i][j] = next[i][k];
+        int tiles = (n + TILE_SIZE - 1) / TILE_SIZE;
+        for (int kb = 0; kb < tiles; kb++) {
+            int pivot = kb;
+            deadline.check();
+            // Phase 1: the diagonal tile depends only on itself
+            relaxTile(result, pivot, pivot, pivot);
+
+            // Phase 2: row and column tiles through the pivot
+            inParallel(pool, 2 * tiles, t -> {
+                int other = t >> 1;
+                if (other == pivot) return;
+                deadline.check();
+                if ((t & 1) == 0) {
+                    relaxTile(result, pivot, other, pivot);
+                } else {
+                    relaxTile(result, other, pivot, pivot);
+                }
+            });
+
+            // Phase 3: every other tile reads one finished row tile and one finished column tile
+            inParallel(pool, tiles * tiles, t -> {
+                int ib = t / tiles;
+                int jb = t % tiles;
+                if (ib != pivot && jb != pivot) {
+                    deadline.check();
+                    relaxTile(result, ib, jb, pivot);
+                }
+            });
+        }
+
+        return result;
+    }
+
+    private static void inParallel(ForkJoinPool pool, int taskCount, IntConsumer task) {
+        if (pool == null || taskCount < 2) {
+            IntStream.range(0, taskCount).forEach(task);
+        } else {
+            pool.submit(() -> IntStream.range(0, taskCount).parallel().forEach(task)).join();
+        }
+    }
+
+    /**
+     * d[i][j] = min(d[i][j], d[i][k] + d[k][j]) for i in tile ib, j in tile jb, k in tile kb
+     */
+    private static void relaxTile(AllPairsResult result, int ib, int jb, int kb) {
+        int n = result.nodeCount;
+        float[] d = result.distances;
+        short[] shortNext = result.shortNext;
+        int[] intNext = result.intNext;
+
+        int kEnd = Math.min(n, (kb + 1) * TILE_SIZE);
+        int iEnd = Math.min(n, (ib + 1) * TILE_SIZE);
+        int jStart = jb * TILE_SIZE;
+        int jEnd = Math.min(n, jStart + TILE_SIZE);
+        for (int k = kb * TILE_SIZE; k < kEnd; k++) {
+            int kRow = k * n;
+            for (int i = ib * TILE_SIZE; i < iEnd; i++) {
+                int iRow = i * n;
+                float dik = d[iRow + k];
+                if (dik == Float.POSITIVE_INFINITY) continue;
+                for (int j = jStart; j < jEnd; j++) {
+                    float candidate = dik + d[kRow + j];
+                    if (candidate < d[iRow + j]) {
+                        d[iRow + j] = candidate;
+                        if (shortNext != null) {
+                            shortNext[iRow + j] = shortNext[iRow + k];
+                        } else {
+                            intNext[iRow + j] = intNext[iRow + k];
+                        }
                     }
                 }
             }
         }
-
-        return new AllPairsResult(distances, next, locations);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,50 @@
+/**
+ * Haversine lower bound scaled by the cheapest cost-per-meter of any open arc
+ * Unlike a fixed walking/driving speed this stays admissible when traffic multipliers drop below 1.0
+ */
+class GeometricHeuristic implements SearchHeuristic {
+    private static final double EARTH_RADIUS = 6371000; // meters, as in DistanceCalculator
+
+    private final double[] latitudes;  // radians
+    private final double[] longitudes; // radians
+    private final double[] cosLatitudes;
+    private final double costPerMeter;
+
+    public GeometricHeuristic(CompactGraph graph, double[] weights) {
+        int n = graph.getNodeCount();
+        this.latitudes = new double[n];
+        this.longitudes = new double[n];
+        this.cosLatitudes = new double[n];
+        for (int i = 0; i < n; i++) {
+            Location location = graph.getLocation(i);
+            latitudes[i] = Math.toRadians(location.getLatitude());
+            longitudes[i] = Math.toRadians(location.getLongitude());
+            cosLatitudes[i] = Math.cos(latitudes[i]);
+        }
+
+        // Tightest scale that no arc undercuts keeps the bound consistent (triangle inequality)
+        double minRatio = Double.POSITIVE_INFINITY;
+        int[] sources = graph.getSources();
+        int[] targets = graph.getTargets();
+        for (int arc = 0; arc < weights.length; arc++) {
+            if (weights[arc] == Double.POSITIVE_INFINITY) continue;
+            double meters = haversine(sources[arc], targets[arc]);
+            if (meters > 0) {
+                minRatio = Math.min(minRatio, weights[arc] / meters);
+            }
+        }
+        this.costPerMeter = minRatio == Double.POSITIVE_INFINITY ? 0.0 : minRatio;
+    }
+
+    @Override
+    public double estimate(int from, int to) {
+        return costPerMeter == 0.0 ? 0.0 : haversine(from, to) * costPerMeter;
+    }
+
+    private double haversine(int a, int b) {
+        double sinLat = Math.sin((latitudes[b] - latitudes[a]) / 2);
+        double sinLon = Math.sin((longitudes[b] - longitudes[a]) / 2);
+        double h = sinLat * sinLat + cosLatitudes[a] * cosLatitudes[b] * sinLon * sinLon;
+        return 2 * EARTH_RADIUS * Math.asin(Math.min(1.0, Math.sqrt(h)));
+    }
+}
@@ -0,0 +1,313 @@
+/**
+ * Hub-label distance oracle built by pruned landmark labeling
+ * Every node keeps an out-label (hubs it reaches) and an in-label (hubs reaching it), both sorted
+ * by hub rank; d(s, t) is the best out(s)[h] + in(t)[h] over common hubs, a linear merge
+ */
+import java.io.*;
+import java.util.*;
+import java.util.stream.IntStream;
+class HubLabelIndex {
+    private static final int FILE_MAGIC = 0x55474c42; // "UGLB"
+
+    private final CompactGraph graph;
+    private final String transportMode;
+    private final int[] outOffsets;   // labels of node v are [offsets[v], offsets[v + 1])
+    private final int[] outHubs;      // hub ranks, ascending within a label
+    private final float[] outDistances;
+    private final int[] inOffsets;
+    private final int[] inHubs;
+    private final float[] inDistances;
+
+    private HubLabelIndex(CompactGraph graph, String transportMode, int[] outOffsets, int[] outHubs,
+                          float[] outDistances, int[] inOffsets, int[] inHubs, float[] inDistances) {
+        this.graph = graph;
+        this.transportMode = transportMode;
+        this.outOffsets = outOffsets;
+        this.outHubs = outHubs;
+        this.outDistances = outDistances;
+        this.inOffsets = inOffsets;
+        this.inHubs = inHubs;
+        this.inDistances = inDistances;
+    }
+
+    public static HubLabelIndex build(CampusGraph graph, String transportMode) {
+        return build(graph.snapshot(), transportMode);
+    }
+
+    /**
+     * Pruned landmark labeling: process nodes from most to least central; each runs a forward
+     * and a backward Dijkstra that stops expanding wherever the labels so far already give the
+     * exact distance, so later hubs only label what earlier hubs cannot cover
+     */
+    public static HubLabelIndex build(CompactGraph graph, String transportMode) {
+        int n = graph.getNodeCount();
+        double[] weights = graph.weights(transportMode);
+        int[] order = centralityOrder(graph, weights);
+
+        Labels out = new Labels(n);
+        Labels in = new Labels(n);
+        double[] hubDistance = new double[n]; // scratch: the current hub's own label, indexed by rank
+        Arrays.fill(hubDistance, Double.POSITIVE_INFINITY);
+
+        try (SearchWorkspace workspace = SearchWorkspace.acquire(n)) {
+            for (int rank = 0; rank < n; rank++) {
+                int hub = order[rank];
+                prunedSearch(graph, weights, hub, rank, false, out, in, hubDistance, workspace);
+                prunedSearch(graph, weights, hub, rank, true, in, out, hubDistance, workspace);
+            }
+        }
+
+        int[] outOffsets = out.offsets();
+        int[] inOffsets = in.offsets();
+        return new HubLabelIndex(graph, transportMode, outOffsets, out.flatHubs(outOffsets), out.flatDistances(outOffsets),
+                inOffsets, in.flatHubs(inOffsets), in.flatDistances(inOffsets));
+    }
+
+    /**
+     * Forward search from the hub fills in-labels (pruning with the hub's out-label);
+     * the backward search fills out-labels symmetrically
+     */
+    private static void prunedSearch(CompactGraph graph, double[] weights, int hub, int rank, boolean backward,
+                                     Labels hubSide, Labels labelled, double[] hubDistance,
+                                     SearchWorkspace workspace) {
+        int[] offsets = backward ? graph.getReverseOffsets() : graph.getOffsets();
+        int[] reverseArcs = graph.getReverseArcs();
+        int[] ends = backward ? graph.getSources() : graph.getTargets();
+
+        for (int i = 0; i < hubSide.size[hub]; i++) hubDistance[hubSide.hubs[hub][i]] = hubSide.distances[hub][i];
+
+        workspace.beginQuery();
+        IndexedMinHeap heap = workspace.heap();
+        workspace.start(hub, 0.0);
+        while (!heap.isEmpty()) {
+            int u = heap.poll();
+            workspace.settle(u);
+            double du = workspace.distance(u);
+
+            // Covered by an earlier hub: neither label u nor search past it
+            if (labelled.bestVia(u, hubDistance) <= du) continue;
+            labelled.add(u, rank, du);
+
+            for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                int arc = backward ? reverseArcs[i] : i;
+                double newDistance = du + weights[arc];
+                if (newDistance < Double.POSITIVE_INFINITY) {
+                    workspace.relax(ends[arc], newDistance, arc, newDistance);
+                }
+            }
+        }
+
+        for (int i = 0; i < hubSide.size[hub]; i++) hubDistance[hubSide.hubs[hub][i]] = Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Rank nodes by how many shortest-path trees pass through them, from a few sampled roots;
+     * central nodes first keeps labels small (degree breaks ties)
+     */
+    private static int[] centralityOrder(CompactGraph graph, double[] weights) {
+        int n = graph.getNodeCount();
+        int[] sources = graph.getSources();
+        long[] score = new long[n];
+        Random random = new Random(n);
+
+        try (SearchWorkspace workspace = SearchWorkspace.acquire(n)) {
+            int[] settled = new int[n];
+            int[] subtree = new int[n];
+            for (int sample = 0; sample < Math.min(n, 16); sample++) {
+                int root = random.nextInt(n);
+                workspace.beginQuery();
+                IndexedMinHeap heap = workspace.heap();
+                workspace.start(root, 0.0);
+                int count = 0;
+                int[] offsets = graph.getOffsets();
+                int[] targets = graph.getTargets();
+                while (!heap.isEmpty()) {
+                    int u = heap.poll();
+                    workspace.settle(u);
+                    settled[count++] = u;
+                    subtree[u] = 1;
+                    double du = workspace.distance(u);
+                    for (int arc = offsets[u]; arc < offsets[u + 1]; arc++) {
+                        double newDistance = du + weights[arc];
+                        if (newDistance < Double.POSITIVE_INFINITY) {
+                            workspace.relax(targets[arc], newDistance, arc, newDistance);
+                        }
+                    }
+                }
+                // Children settle after parents, so one reverse sweep accumulates subtree sizes
+                for (int i = count - 1; i > 0; i--) {
+                    int v = settled[i];
+                    subtree[sources[workspace.predecessorArc(v)]] += subtree[v];
+                    score[v] += subtree[v];
+                }
+                score[root] += subtree[root];
+            }
+        }
+
+        int[] offsets = graph.getOffsets();
+        return IntStream.range(0, n).boxed()
+                .sorted(Comparator.<Integer>comparingLong(v -> -score[v])
+                        .thenComparingInt(v -> -(offsets[v + 1] - offsets[v])))
+                .mapToInt(Integer::intValue).toArray();
+    }
+
+    public CompactGraph getGraph() { return graph; }
+    public String getTransportMode() { return transportMode; }
+
+    /**
+     * Total label entries over both directions, a measure of index size
+     */
+    public int getLabelEntryCount() { return outHubs.length + inHubs.length; }
+
+    public double distance(Location source, Location destination) {
+        int s = graph.indexOf(source);
+        int t = graph.indexOf(destination);
+        if (s < 0 || t < 0) return Double.POSITIVE_INFINITY;
+        return distance(s, t);
+    }
+
+    /**
+     * Merge the two rank-sorted labels and keep the best common hub
+     */
+    public double distance(int s, int t) {
+        int i = outOffsets[s], iEnd = outOffsets[s + 1];
+        int j = inOffsets[t], jEnd = inOffsets[t + 1];
+        double best = Double.POSITIVE_INFINITY;
+        while (i < iEnd && j < jEnd) {
+            int a = outHubs[i];
+            int b = inHubs[j];
+            if (a == b) {
+                best = Math.min(best, (double) outDistances[i++] + inDistances[j++]);
+            } else if (a < b) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Binary format: magic, mode, node ids (so loading can remap nodes), then both label sets
+     */
+    public void save(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeUTF(transportMode);
+            int n = graph.getNodeCount();
+            out.writeInt(n);
+            for (int v = 0; v < n; v++) out.writeUTF(graph.getLocation(v).getId());
+            writeLabels(out, outOffsets, outHubs, outDistances);
+            writeLabels(out, inOffsets, inHubs, inDistances);
+        }
+    }
+
+    /**
+     * Load an index saved for the same set of locations; the caller is responsible for
+     * the weights still matching (e.g. a nightly index over base travel times)
+     */
+    public static HubLabelIndex load(File file, CompactGraph graph) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC) throw new IOException("Not a hub label file: " + file);
+            String transportMode = in.readUTF();
+            int n = in.readInt();
+            if (n != graph.getNodeCount()) throw new IOException("Hub labels were built for a different graph");
+
+            int[] nodeOf = new int[n]; // file node -> graph node
+            for (int v = 0; v < n; v++) {
+                String id = in.readUTF();
+                nodeOf[v] = graph.indexOf(id);
+                if (nodeOf[v] < 0) throw new IOException("Unknown location in hub labels: " + id);
+            }
+
+            Labels out = readLabels(in, nodeOf);
+            Labels inLabels = readLabels(in, nodeOf);
+            int[] outOffsets = out.offsets();
+            int[] inOffsets = inLabels.offsets();
+            return new HubLabelIndex(graph, transportMode, outOffsets, out.flatHubs(outOffsets), out.flatDistances(outOffsets),
+                    inOffsets, inLabels.flatHubs(inOffsets), inLabels.flatDistances(inOffsets));
+        }
+    }
+
+    private static void writeLabels(DataOutputStream out, int[] offsets, int[] hubs, float[] distances)
+            throws IOException {
+        int n = offsets.length - 1;
+        for (int v = 0; v < n; v++) {
+            out.writeInt(offsets[v + 1] - offsets[v]);
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                out.writeInt(hubs[i]);
+                out.writeFloat(distances[i]);
+            }
+        }
+    }
+
+    private static Labels readLabels(DataInputStream in, int[] nodeOf) throws IOException {
+        Labels labels = new Labels(nodeOf.length);
+        for (int v = 0; v < nodeOf.length; v++) {
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                labels.add(nodeOf[v], in.readInt(), in.readFloat());
+            }
+        }
+        return labels;
+    }
+
+    /**
+     * Growable per-node labels used while building; hubs arrive in rank order so stay sorted
+     */
+    private static class Labels {
+        final int[][] hubs;
+        final double[][] distances;
+        final int[] size;
+
+        Labels(int nodeCount) {
+            hubs = new int[nodeCount][];
+            distances = new double[nodeCount][];
+            size = new int[nodeCount];
+            for (int v = 0; v < nodeCount; v++) {
+                hubs[v] = new int[4];
+                distances[v] = new double[4];
+            }
+        }
+
+        void add(int node, int hubRank, double distance) {
+            if (size[node] == hubs[node].length) {
+                hubs[node] = Arrays.copyOf(hubs[node], size[node] * 2);
+                distances[node] = Arrays.copyOf(distances[node], size[node] * 2);
+            }
+            hubs[node][size[node]] = hubRank;
+            distances[node][size[node]++] = distance;
+        }
+
+        /**
+         * Best distance through a hub of this node's label, given the other endpoint's label by rank
+         */
+        double bestVia(int node, double[] hubDistance) {
+            double best = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < size[node]; i++) {
+                best = Math.min(best, hubDistance[hubs[node][i]] + distances[node][i]);
+            }
+            return best;
+        }
+
+        int[] offsets() {
+            int[] offsets = new int[size.length + 1];
+            for (int v = 0; v < size.length; v++) offsets[v + 1] = offsets[v] + size[v];
+            return offsets;
+        }
+
+        int[] flatHubs(int[] offsets) {
+            int[] flat = new int[offsets[size.length]];
+            for (int v = 0; v < size.length; v++) System.arraycopy(hubs[v], 0, flat, offsets[v], size[v]);
+            return flat;
+        }
+
+        float[] flatDistances(int[] offsets) {
+            float[] flat = new float[offsets[size.length]];
+            for (int v = 0; v < size.length; v++) {
+                for (int i = 0; i < size[v]; i++) flat[offsets[v] + i] = (float) distances[v][i];
+            }
+            return flat;
+        }
+    }
+}
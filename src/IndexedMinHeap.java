@@ -0,0 +1,113 @@
+/**
+ * Indexed d-ary min-heap over int node ids with decrease-key
+ * Keys and heap positions live in primitive arrays indexed by node, so
+ * pushes and decrease-keys allocate nothing
+ */
+import java.util.*;
+class IndexedMinHeap {
+    private static final int ARITY = 4; // shallower than binary, better cache behaviour on sift-down
+
+    private int[] heap;      // heap slot -> node
+    private int[] position;  // node -> heap slot (valid only while the node is queued)
+    private double[] keys;   // node -> priority
+    private int size;
+
+    public IndexedMinHeap(int capacity) {
+        this.heap = new int[Math.max(1, capacity)];
+        this.position = new int[Math.max(1, capacity)];
+        this.keys = new double[Math.max(1, capacity)];
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (capacity > keys.length) {
+            heap = Arrays.copyOf(heap, capacity);
+            position = Arrays.copyOf(position, capacity);
+            keys = Arrays.copyOf(keys, capacity);
+        }
+    }
+
+    public boolean isEmpty() { return size == 0; }
+    public int size() { return size; }
+    public void clear() { size = 0; }
+
+    public double peekKey() {
+        return size == 0 ? Double.POSITIVE_INFINITY : keys[heap[0]];
+    }
+
+    public int peek() {
+        return heap[0];
+    }
+
+    /**
+     * Insert a node that is not currently queued
+     */
+    public void insert(int node, double key) {
+        keys[node] = key;
+        heap[size] = node;
+        position[node] = size;
+        siftUp(size++);
+    }
+
+    /**
+     * Lower the key of a queued node; larger keys are ignored
+     */
+    public void decreaseKey(int node, double key) {
+        if (key < keys[node]) {
+            keys[node] = key;
+            siftUp(position[node]);
+        }
+    }
+
+    public int poll() {
+        int top = heap[0];
+        size--;
+        if (size > 0) {
+            heap[0] = heap[size];
+            position[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private void siftUp(int slot) {
+        int node = heap[slot];
+        double key = keys[node];
+        while (slot > 0) {
+            int parent = (slot - 1) / ARITY;
+            int parentNode = heap[parent];
+            if (keys[parentNode] <= key) break;
+            heap[slot] = parentNode;
+            position[parentNode] = slot;
+            slot = parent;
+        }
+        heap[slot] = node;
+        position[node] = slot;
+    }
+
+    private void siftDown(int slot) {
+        int node = heap[slot];
+        double key = keys[node];
+        while (true) {
+            int first = slot * ARITY + 1;
+            if (first >= size) break;
+
+            int best = first;
+            double bestKey = keys[heap[first]];
+            int last = Math.min(first + ARITY, size);
+            for (int child = first + 1; child < last; child++) {
+                double childKey = keys[heap[child]];
+                if (childKey < bestKey) {
+                    best = child;
+                    bestKey = childKey;
+                }
+            }
+
+            if (bestKey >= key) break;
+            heap[slot] = heap[best];
+            position[heap[slot]] = slot;
+            slot = best;
+        }
+        heap[slot] = node;
+        position[node] = slot;
+    }
+}
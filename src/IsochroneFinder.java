@@ -0,0 +1,121 @@
+/**
+ * Isochrone (reachability) queries: everything within a travel-time budget of one location
+ * A Dijkstra that never queues anything past the budget, on the pooled per-thread workspace,
+ * so the cost tracks the size of the reachable area rather than the whole graph
+ */
+import java.util.*;
+class IsochroneFinder {
+
+    public static class Isochrone {
+        private final Location origin;
+        private final double budgetMinutes;
+        private final List<Location> locations;
+        private final double[] arrivalTimes;
+        private final List<double[]> boundary;
+
+        Isochrone(Location origin, double budgetMinutes, List<Location> locations,
+                  double[] arrivalTimes, List<double[]> boundary) {
+            this.origin = origin;
+            this.budgetMinutes = budgetMinutes;
+            this.locations = locations;
+            this.arrivalTimes = arrivalTimes;
+            this.boundary = boundary;
+        }
+
+        public Location getOrigin() { return origin; }
+        public double getBudgetMinutes() { return budgetMinutes; }
+
+        /**
+         * Reachable locations in order of arrival, the origin first
+         */
+        public List<Location> getLocations() { return locations; }
+
+        /**
+         * Arrival time in minutes of getLocations().get(index)
+         */
+        public double getArrivalTime(int index) { return arrivalTimes[index]; }
+
+        /**
+         * Convex boundary as {latitude, longitude} points in counter-clockwise order,
+         * including the points part-way along roads where the budget runs out
+         */
+        public List<double[]> getBoundary() { return boundary; }
+    }
+
+    public static Isochrone compute(CompactGraph graph, Location origin, double budgetMinutes,
+                                    String transportMode) {
+        int source = graph.indexOf(origin);
+        if (source < 0) {
+            return new Isochrone(origin, budgetMinutes, new ArrayList<>(), new double[0], new ArrayList<>());
+        }
+
+        double[] weights = graph.weights(transportMode);
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
+        List<Location> reached = new ArrayList<>();
+        double[] arrivals = new double[16];
+        List<double[]> points = new ArrayList<>();
+
+        try (SearchWorkspace workspace = SearchWorkspace.acquire(graph.getNodeCount())) {
+            IndexedMinHeap heap = workspace.heap();
+            workspace.start(source, 0.0);
+            while (!heap.isEmpty()) {
+                int u = heap.poll();
+                workspace.settle(u);
+                double du = workspace.distance(u);
+
+                Location location = graph.getLocation(u);
+                if (reached.size() == arrivals.length) arrivals = Arrays.copyOf(arrivals, arrivals.length * 2);
+                arrivals[reached.size()] = du;
+                reached.add(location);
+                points.add(new double[]{location.getLatitude(), location.getLongitude()});
+
+                for (int arc = offsets[u]; arc < offsets[u + 1]; arc++) {
+                    double w = weights[arc];
+                    if (w == Double.POSITIVE_INFINITY) continue;
+                    int v = targets[arc];
+                    if (du + w <= budgetMinutes) {
+                        workspace.relax(v, du + w, arc, du + w);
+                    } else if (w > 0) {
+                        // Budget runs out on this road: interpolate how far along it we get
+                        double fraction = (budgetMinutes - du) / w;
+                        Location end = graph.getLocation(v);
+                        points.add(new double[]{
+                                location.getLatitude() + fraction * (end.getLatitude() - location.getLatitude()),
+                                location.getLongitude() + fraction * (end.getLongitude() - location.getLongitude())});
+                    }
+                }
+            }
+        }
+
+        return new Isochrone(origin, budgetMinutes, reached, Arrays.copyOf(arrivals, reached.size()),
+                convexHull(points));
+    }
+
+    /**
+     * Andrew's monotone chain; the area is small enough to treat lat/lon as planar
+     */
+    static List<double[]> convexHull(List<double[]> points) {
+        List<double[]> sorted = new ArrayList<>(points);
+        sorted.sort((a, b) -> a[1] != b[1] ? Double.compare(a[1], b[1]) : Double.compare(a[0], b[0]));
+        if (sorted.size() < 3) return sorted;
+
+        double[][] hull = new double[2 * sorted.size()][];
+        int size = 0;
+        for (double[] p : sorted) { // lower chain
+            while (size >= 2 && cross(hull[size - 2], hull[size - 1], p) <= 0) size--;
+            hull[size++] = p;
+        }
+        for (int i = sorted.size() - 2, lower = size + 1; i >= 0; i--) { // upper chain
+            double[] p = sorted.get(i);
+            while (size >= lower && cross(hull[size - 2], hull[size - 1], p) <= 0) size--;
+            hull[size++] = p;
+        }
+        return new ArrayList<>(Arrays.asList(hull).subList(0, size - 1));
+    }
+
+    // x = longitude, y = latitude
+    private static double cross(double[] o, double[] a, double[] b) {
+        return (a[1] - o[1]) * (b[0] - o[0]) - (a[0] - o[0]) * (b[1] - o[1]);
+    }
+}
@@ -0,0 +1,177 @@
+/**
+ * Yen's k-shortest loopless paths over a CSR snapshot
+ * Spur searches for one iteration are independent, so they run in parallel on a fork-join pool;
+ * removed arcs and root-path nodes are marked in per-task BitSets indexed by arc / node id
+ */
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.IntFunction;
+import java.util.stream.*;
+class KShortestPathfinder {
+
+    /**
+     * Up to k loopless paths in non-decreasing cost order
+     * pool: runs the spur searches; null searches them on the calling thread
+     */
+    public static List<Route> findPaths(CompactGraph graph, Location source, Location destination,
+                                        String transportMode, int k, ForkJoinPool pool) {
+        return findPaths(graph, source, destination, transportMode, k, pool, SearchDeadline.NONE);
+    }
+
+    /**
+     * The deadline is checked inside every spur search, so a cancelled query stops them all
+     */
+    public static List<Route> findPaths(CompactGraph graph, Location source, Location destination,
+                                        String transportMode, int k, ForkJoinPool pool, SearchDeadline deadline) {
+        int s = graph.indexOf(source);
+        int t = graph.indexOf(destination);
+        List<Route> routes = new ArrayList<>();
+        if (s < 0 || t < 0 || k <= 0) return routes;
+
+        for (Path path : findPaths(graph, graph.weights(transportMode), s, t, k, pool, deadline)) {
+            routes.add(graph.buildRoute(s, path.arcs, path.arcs.length, transportMode));
+        }
+        return routes;
+    }
+
+    static List<Path> findPaths(CompactGraph graph, double[] weights, int s, int t, int k, ForkJoinPool pool,
+                                SearchDeadline deadline) {
+        List<Path> accepted = new ArrayList<>();
+        Path first = spurPath(graph, weights, s, t, new BitSet(), new BitSet(), deadline);
+        if (first == null) return accepted;
+        accepted.add(first);
+
+        PriorityQueue<Path> candidates = new PriorityQueue<>(Comparator.comparingDouble(p -> p.cost));
+        Set<Path> seen = new HashSet<>();
+        seen.add(first);
+
+        while (accepted.size() < k) {
+            Path previous = accepted.get(accepted.size() - 1);
+            int[] nodes = previous.nodes(graph, s);
+
+            // Lawler's refinement: spur nodes before the deviation point were covered by the parent
+            List<Path> spurs = mapSpurs(pool, previous.deviation, previous.arcs.length,
+                    i -> deviate(graph, weights, accepted, previous, nodes, i, t, deadline));
+            for (Path candidate : spurs) {
+                if (candidate != null && seen.add(candidate)) {
+                    candidates.add(candidate);
+                }
+            }
+
+            if (candidates.isEmpty()) break;
+            accepted.add(candidates.poll());
+        }
+        return accepted;
+    }
+
+    private static List<Path> mapSpurs(ForkJoinPool pool, int from, int to,
+                                       IntFunction<Path> spur) {
+        if (pool == null || to - from < 2) {
+            return IntStream.range(from, to).mapToObj(spur).collect(Collectors.toList());
+        }
+        return pool.submit(() -> IntStream.range(from, to).parallel().mapToObj(spur)
+                .collect(Collectors.toList())).join();
+    }
+
+    /**
+     * Best path that follows previous for its first i arcs and then leaves it at nodes[i]
+     */
+    private static Path deviate(CompactGraph graph, double[] weights, List<Path> accepted,
+                                Path previous, int[] nodes, int i, int t, SearchDeadline deadline) {
+        BitSet removedArcs = new BitSet(graph.getArcCount());
+        for (Path path : accepted) {
+            if (path.arcs.length > i && path.sharesPrefix(previous, i)) {
+                removedArcs.set(path.arcs[i]);
+            }
+        }
+        BitSet removedNodes = new BitSet(graph.getNodeCount());
+        for (int j = 0; j < i; j++) removedNodes.set(nodes[j]); // keeps the path loopless
+
+        Path spur = spurPath(graph, weights, nodes[i], t, removedArcs, removedNodes, deadline);
+        if (spur == null) return null;
+
+        int[] arcs = new int[i + spur.arcs.length];
+        System.arraycopy(previous.arcs, 0, arcs, 0, i);
+        System.arraycopy(spur.arcs, 0, arcs, i, spur.arcs.length);
+        double rootCost = 0.0;
+        for (int j = 0; j < i; j++) rootCost += weights[previous.arcs[j]];
+        return new Path(arcs, rootCost + spur.cost, i);
+    }
+
+    /**
+     * Dijkstra from spurNode to t that skips removed arcs and nodes
+     */
+    private static Path spurPath(CompactGraph graph, double[] weights, int spurNode, int t,
+                                 BitSet removedArcs, BitSet removedNodes, SearchDeadline deadline) {
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
+        int[] sources = graph.getSources();
+
+        try (SearchWorkspace workspace = SearchWorkspace.acquire(graph.getNodeCount())) {
+            IndexedMinHeap heap = workspace.heap();
+            workspace.start(spurNode, 0.0);
+            int settled = 0;
+            while (!heap.isEmpty()) {
+                int u = heap.poll();
+                workspace.settle(u);
+                if (u == t) break;
+                deadline.checkEvery(++settled);
+
+                double du = workspace.distance(u);
+                for (int arc = offsets[u]; arc < offsets[u + 1]; arc++) {
+                    int v = targets[arc];
+                    double newDistance = du + weights[arc];
+                    if (newDistance == Double.POSITIVE_INFINITY || removedArcs.get(arc) || removedNodes.get(v)) continue;
+                    workspace.relax(v, newDistance, arc, newDistance);
+                }
+            }
+
+            double cost = workspace.distance(t);
+            if (cost == Double.POSITIVE_INFINITY) return null;
+
+            int length = 0;
+            for (int v = t; v != spurNode; v = sources[workspace.predecessorArc(v)]) length++;
+            int[] arcs = new int[length];
+            for (int v = t; v != spurNode; v = sources[workspace.predecessorArc(v)]) {
+                arcs[--length] = workspace.predecessorArc(v);
+            }
+            return new Path(arcs, cost, 0);
+        }
+    }
+
+    /**
+     * Arc sequence with its cost and the index where it left its parent path
+     */
+    static class Path {
+        final int[] arcs;
+        final double cost;
+        final int deviation;
+
+        Path(int[] arcs, double cost, int deviation) {
+            this.arcs = arcs;
+            this.cost = cost;
+            this.deviation = deviation;
+        }
+
+        int[] nodes(CompactGraph graph, int source) {
+            int[] nodes = new int[arcs.length + 1];
+            nodes[0] = source;
+            for (int i = 0; i < arcs.length; i++) nodes[i + 1] = graph.getTargets()[arcs[i]];
+            return nodes;
+        }
+
+        boolean sharesPrefix(Path other, int length) {
+            return Arrays.equals(arcs, 0, length, other.arcs, 0, length);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Path && Arrays.equals(arcs, ((Path) o).arcs);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(arcs);
+        }
+    }
+}
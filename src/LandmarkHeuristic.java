@@ -0,0 +1,127 @@
+/**
+ * ALT heuristic (A*, landmarks, triangle inequality)
+ * Preprocessing picks K landmarks and stores exact distances from and to each of them;
+ * d(v, t) >= max(d(L, t) - d(L, v), d(v, L) - d(t, L)) then gives a tight, consistent lower bound
+ */
+import java.util.*;
+class LandmarkHeuristic implements SearchHeuristic {
+    public static final int DEFAULT_LANDMARK_COUNT = 8;
+
+    private final CompactGraph graph;
+    private final int nodeCount;
+    private final int[] landmarks;
+    private final double[] fromLandmark; // [k * n + v] = d(landmark k, v)
+    private final double[] toLandmark;   // [k * n + v] = d(v, landmark k)
+
+    private LandmarkHeuristic(CompactGraph graph, int[] landmarks, double[] fromLandmark, double[] toLandmark) {
+        this.graph = graph;
+        this.nodeCount = graph.getNodeCount();
+        this.landmarks = landmarks;
+        this.fromLandmark = fromLandmark;
+        this.toLandmark = toLandmark;
+    }
+
+    /**
+     * Select landmarks by farthest-point sampling and compute their distance arrays
+     * Cost: 2K single-source searches, so rebuild whenever the snapshot's weights change
+     */
+    public static LandmarkHeuristic build(CompactGraph graph, String transportMode, int landmarkCount) {
+        int n = graph.getNodeCount();
+        double[] weights = graph.weights(transportMode);
+        int k = Math.min(landmarkCount, n);
+
+        int[] landmarks = new int[k];
+        double[] fromLandmark = new double[k * n];
+        double[] toLandmark = new double[k * n];
+        double[] nearestLandmark = new double[n]; // min over chosen landmarks of d(L, v)
+        Arrays.fill(nearestLandmark, Double.POSITIVE_INFINITY);
+
+        // Start from the node farthest from an arbitrary root, then keep taking the node
+        // farthest from every landmark so far; unreachable nodes win, which covers other components
+        int next = farthestNode(graph, weights, 0);
+        for (int i = 0; i < k; i++) {
+            landmarks[i] = next;
+            computeDistances(graph, weights, next, false, fromLandmark, i * n);
+            computeDistances(graph, weights, next, true, toLandmark, i * n);
+
+            next = -1;
+            double best = -1;
+            for (int v = 0; v < n; v++) {
+                nearestLandmark[v] = Math.min(nearestLandmark[v], fromLandmark[i * n + v]);
+                double score = nearestLandmark[v] == Double.POSITIVE_INFINITY ? Double.MAX_VALUE : nearestLandmark[v];
+                if (score > best && !contains(landmarks, i + 1, v)) {
+                    best = score;
+                    next = v;
+                }
+            }
+            if (next < 0) {
+                return new LandmarkHeuristic(graph, Arrays.copyOf(landmarks, i + 1),
+                        Arrays.copyOf(fromLandmark, (i + 1) * n), Arrays.copyOf(toLandmark, (i + 1) * n));
+            }
+        }
+
+        return new LandmarkHeuristic(graph, landmarks, fromLandmark, toLandmark);
+    }
+
+    /**
+     * Snapshot the distance arrays were computed on; searches must use the same weights
+     */
+    public CompactGraph getGraph() { return graph; }
+    public int getLandmarkCount() { return landmarks.length; }
+
+    @Override
+    public double estimate(int from, int to) {
+        double best = 0.0;
+        for (int k = 0, base = 0; k < landmarks.length; k++, base += nodeCount) {
+            // Terms involving unreachable pairs carry no information and are skipped
+            double landmarkToTarget = fromLandmark[base + to];
+            double landmarkToNode = fromLandmark[base + from];
+            if (landmarkToTarget != Double.POSITIVE_INFINITY && landmarkToNode != Double.POSITIVE_INFINITY) {
+                best = Math.max(best, landmarkToTarget - landmarkToNode);
+            }
+            double nodeToLandmark = toLandmark[base + from];
+            double targetToLandmark = toLandmark[base + to];
+            if (nodeToLandmark != Double.POSITIVE_INFINITY && targetToLandmark != Double.POSITIVE_INFINITY) {
+                best = Math.max(best, nodeToLandmark - targetToLandmark);
+            }
+        }
+        return best;
+    }
+
+    private static int farthestNode(CompactGraph graph, double[] weights, int root) {
+        double[] distances = new double[graph.getNodeCount()];
+        computeDistances(graph, weights, root, false, distances, 0);
+        int farthest = root;
+        for (int v = 0; v < distances.length; v++) {
+            if (distances[v] != Double.POSITIVE_INFINITY && distances[v] > distances[farthest]) {
+                farthest = v;
+            }
+        }
+        return farthest;
+    }
+
+    /**
+     * One-to-all distances from the root (or to it, over incoming arcs) into out[offset ..]
+     */
+    private static void computeDistances(CompactGraph graph, double[] weights, int root, boolean reverse,
+                                         double[] out, int offset) {
+        int n = graph.getNodeCount();
+        try (SearchWorkspace workspace = SearchWorkspace.acquire(n)) {
+            if (reverse) {
+                DijkstraPathfinder.searchBackward(graph, weights, root, -1, workspace);
+            } else {
+                DijkstraPathfinder.search(graph, weights, root, -1, workspace);
+            }
+            for (int v = 0; v < n; v++) {
+                out[offset + v] = workspace.distance(v);
+            }
+        }
+    }
+
+    private static boolean contains(int[] values, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (values[i] == value) return true;
+        }
+        return false;
+    }
+}
@@ -2,6 +2,7 @@
  * Advanced search algorithms for landmark-based routing
  */
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
 class LandmarkSearch {
@@ -64,9 +65,15 @@ class LandmarkSearch {
 
         private CampusGraph graph;
         private Map<String, Set<Location>> landmarkCache;
+        private final ForkJoinPool pool; // fan-out of the direct k-shortest fallback
 
         public LandmarkSearchEngine(CampusGraph graph) {
+            this(graph, ForkJoinPool.commonPool());
+        }
+
+        public LandmarkSearchEngine(CampusGraph graph, ForkJoinPool pool) {
             this.graph = graph;
+            this.pool = pool;
             this.landmarkCache = new HashMap<>();
             buildLandmarkIndex();
         }
@@ -99,6 +106,23 @@ class LandmarkSearch {
          */
         public List<Route> findRoutesWithLandmarks(Location source, Location destination,
                                                    String transportMode, String... landmarks) {
+            return findRoutesWithLandmarks(source, destination, transportMode, SearchDeadline.NONE, landmarks);
+        }
+
+        /**
+         * Same search; both trees check the deadline and are abandoned with CancellationException
+         */
+        public List<Route> findRoutesWithLandmarks(Location source, Location destination, String transportMode,
+                                                   SearchDeadline deadline, String... landmarks) {
+            return findRoutesWithLandmarks(graph.snapshot(), source, destination, transportMode, deadline, landmarks);
+        }
+
+        /**
+         * Same search on a snapshot the caller pinned for its whole query
+         */
+        public List<Route> findRoutesWithLandmarks(CompactGraph snapshot, Location source, Location destination,
+                                                   String transportMode, SearchDeadline deadline,
+                                                   String... landmarks) {
             List<Route> candidateRoutes = new ArrayList<>();
 
             // Get all locations matching any landmark
@@ -109,36 +133,71 @@ class LandmarkSearch {
 
             if (landmarkLocations.isEmpty()) {
                 // No landmarks found, return direct routes
-                return DijkstraPathfinder.findMultiplePaths(graph, source, destination, transportMode, 3);
+                return DijkstraPathfinder.findMultiplePaths(snapshot, source, destination, transportMode, 3, pool,
+                        deadline);
             }
 
-            // Find routes through each landmark location
-            for (Location landmarkLoc : landmarkLocations) {
-                Route toLandmark = AStarPathfinder.findOptimalPath(graph, source, landmarkLoc, transportMode);
-                Route fromLandmark = AStarPathfinder.findOptimalPath(graph, landmarkLoc, destination, transportMode);
-
-                if (toLandmark != null && fromLandmark != null) {
+            // One forward tree from the source and one backward tree into the destination price
+            // every via location in O(1), however many locations the keywords matched
+            double[] weights = snapshot.weights(transportMode);
+            int s = snapshot.indexOf(source);
+            int t = snapshot.indexOf(destination);
+            if (s < 0 || t < 0) return candidateRoutes;
+
+            try (SearchWorkspace forward = SearchWorkspace.acquire(snapshot.getNodeCount());
+                 SearchWorkspace backward = SearchWorkspace.acquire(snapshot.getNodeCount())) {
+                DijkstraPathfinder.search(snapshot, weights, s, -1, forward, deadline);
+                DijkstraPathfinder.searchBackward(snapshot, weights, t, -1, backward, deadline);
+
+                List<Location> vias = new ArrayList<>();
+                for (Location landmarkLoc : landmarkLocations) {
+                    int v = snapshot.indexOf(landmarkLoc);
+                    if (v >= 0 && forward.distance(v) + backward.distance(v) < Double.POSITIVE_INFINITY) {
+                        vias.add(landmarkLoc);
+                    }
+                }
+                vias.sort(Comparator.comparingDouble(loc -> {
+                    int v = snapshot.indexOf(loc);
+                    return forward.distance(v) + backward.distance(v);
+                }));
+
+                // Stitch only the cheapest vias, skipping ones that repeat an earlier route
+                Set<String> seenPaths = new HashSet<>();
+                for (Location landmarkLoc : vias) {
+                    if (candidateRoutes.size() >= 3) break;
+                    int v = snapshot.indexOf(landmarkLoc);
+                    Route toLandmark = snapshot.buildRoute(s, v, forward.predecessorArcs(), transportMode);
+                    Route fromLandmark = backwardRoute(snapshot, backward, v, t, transportMode);
                     Route combinedRoute = combineRoutes(toLandmark, fromLandmark, transportMode);
-                    if (combinedRoute != null) {
-                        // Add landmark information
-                        for (String landmark : landmarks) {
-                            if (landmarkLoc.getKeywords().contains(landmark.toLowerCase()) ||
-                                    landmarkLoc.getName().toLowerCase().contains(landmark.toLowerCase()) ||
-                                    landmarkLoc.getType().toLowerCase().contains(landmark.toLowerCase())) {
-                                combinedRoute.addLandmark(landmark);
-                            }
+                    if (!seenPaths.add(pathSignature(combinedRoute))) continue;
+
+                    // Add landmark information
+                    for (String landmark : landmarks) {
+                        if (landmarkLoc.getKeywords().contains(landmark.toLowerCase()) ||
+                                landmarkLoc.getName().toLowerCase().contains(landmark.toLowerCase()) ||
+                                landmarkLoc.getType().toLowerCase().contains(landmark.toLowerCase())) {
+                            combinedRoute.addLandmark(landmark);
                         }
-                        candidateRoutes.add(combinedRoute);
                     }
+                    candidateRoutes.add(combinedRoute);
                 }
             }
 
-            // Remove duplicates and sort by total time
-            candidateRoutes = removeDuplicateRoutes(candidateRoutes);
-            RouteSorting.MergeSort.sortByTime(candidateRoutes);
+            // Already unique and in time order
+            return candidateRoutes;
+        }
 
-            // Return top 3 routes
-            return candidateRoutes.stream().limit(3).collect(Collectors.toList());
+        /**
+         * Route from a node to the root of a backward search tree
+         */
+        private Route backwardRoute(CompactGraph snapshot, SearchWorkspace backward, int from, int root,
+                                    String transportMode) {
+            int[] arcs = new int[snapshot.getNodeCount()];
+            int length = 0;
+            for (int u = from; u != root; u = snapshot.getTargets()[arcs[length - 1]]) {
+                arcs[length++] = backward.predecessorArc(u);
+            }
+            return snapshot.buildRoute(from, arcs, length, transportMode);
         }
 
         /**
@@ -197,45 +256,17 @@ class LandmarkSearch {
         }
 
         private Route combineRoutes(Route route1, Route route2, String transportMode) {
+            // Keep each leg's travel times, which come from the snapshot it was searched on
             Route combined = new Route(transportMode);
-
-            // Add all locations from first route
-            for (Location loc : route1.getPath()) {
-                combined.addLocation(loc);
-            }
-
-            // Add locations from second route (excluding the connecting point)
-            List<Location> secondPath = route2.getPath();
-            for (int i = 1; i < secondPath.size(); i++) {
-                combined.addLocation(secondPath.get(i));
-            }
-
-            // Add all edges
-            for (Edge edge : route1.getEdges()) {
-                combined.addEdge(edge);
-            }
-            for (Edge edge : route2.getEdges()) {
-                combined.addEdge(edge);
-            }
-
+            combined.append(route1);
+            combined.append(route2); // skips the connecting point
             return combined;
         }
 
-        private List<Route> removeDuplicateRoutes(List<Route> routes) {
-            Set<String> seenPaths = new HashSet<>();
-            List<Route> uniqueRoutes = new ArrayList<>();
-
-            for (Route route : routes) {
-                String pathSignature = route.getPath().stream()
-                        .map(Location::getId)
-                        .collect(Collectors.joining("->"));
-                if (!seenPaths.contains(pathSignature)) {
-                    seenPaths.add(pathSignature);
-                    uniqueRoutes.add(route);
-                }
-            }
-
-            return uniqueRoutes;
+        private String pathSignature(Route route) {
+            return route.getPath().stream()
+                    .map(Location::getId)
+                    .collect(Collectors.joining("->"));
         }
 
         private int levenshteinDistance(String s1, String s2) {
@@ -39,6 +39,7 @@ public class OSMMapPanel extends JPanel {
 
     private List<Edge> routeEdges = new ArrayList<>();
     private List<Location> routeLandmarks = new ArrayList<>();
+    private List<double[]> isochrone = new ArrayList<>(); // {lat, lon} polygon
 
     public OSMMapPanel() {
         setOpaque(true);
@@ -116,6 +117,13 @@ public class OSMMapPanel extends JPanel {
         this.routeEdges = edges != null ? new ArrayList<>(edges) : new ArrayList<>();
         repaint();
     }
+    /**
+     * Shade a reachability polygon ({latitude, longitude} points); null or empty clears it
+     */
+    public void setIsochrone(List<double[]> polygon) {
+        this.isochrone = polygon != null ? new ArrayList<>(polygon) : new ArrayList<>();
+        repaint();
+    }
     public void setLandmarks(List<Location> landmarks) {
         this.routeLandmarks = landmarks != null ? new ArrayList<>(landmarks) : new ArrayList<>();
         repaint();
@@ -211,6 +219,22 @@ public class OSMMapPanel extends JPanel {
             }
         }
 
+        // Draw isochrone polygon under the route
+        if (isochrone.size() >= 3) {
+            Path2D.Double area = new Path2D.Double();
+            for (int i = 0; i < isochrone.size(); i++) {
+                double x = lonToPixelX(isochrone.get(i)[1], zoom) - originWorldX + screenOffsetX;
+                double y = latToPixelY(isochrone.get(i)[0], zoom) - originWorldY + screenOffsetY;
+                if (i == 0) area.moveTo(x, y); else area.lineTo(x, y);
+            }
+            area.closePath();
+            g2.setColor(new Color(46, 204, 113, 70));
+            g2.fill(area);
+            g2.setStroke(new BasicStroke(2f));
+            g2.setColor(new Color(39, 174, 96, 200));
+            g2.draw(area);
+        }
+
         // Draw route using edges (actual road segments)
         if (!routeEdges.isEmpty()) {
             System.out.println("Drawing route with " + routeEdges.size() + " edges");
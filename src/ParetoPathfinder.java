@@ -0,0 +1,257 @@
+/**
+ * Multi-criteria label-setting search (MLC): the full Pareto front of routes for 2-4 criteria
+ * Labels live in flat primitive arrays; a new label is dropped when a label at its node or at the
+ * target already dominates it, and each node keeps a bounded bag of non-dominated labels
+ */
+import java.util.*;
+class ParetoPathfinder {
+    public static final String[] CRITERIA = {"time", "distance", "safety", "accessibility"};
+    public static final int DEFAULT_MAX_LABELS_PER_NODE = 64;
+
+    private static final List<String> MAIN_ROADS = Arrays.asList(
+            "University Avenue", "Academic Road", "Hall Road", "Faculty Road");
+
+    public static class ParetoRoute {
+        private final Route route;
+        private final String[] criteria;
+        private final double[] costs;
+
+        ParetoRoute(Route route, String[] criteria, double[] costs) {
+            this.route = route;
+            this.criteria = criteria;
+            this.costs = costs;
+        }
+
+        public Route getRoute() { return route; }
+        public String[] getCriteria() { return criteria; }
+
+        /**
+         * Cost of the route in criteria[index]
+         */
+        public double getCost(int index) { return costs[index]; }
+    }
+
+    /**
+     * Per-arc cost for one criterion; all are non-negative and smaller is better
+     * time: travel time in the mode; distance: meters;
+     * safety: meters away from main roads and populated (academic/residential) places;
+     * accessibility: meters on roads that are not marked accessible or are not paved avenues/roads
+     */
+    static double[] criterionCosts(CompactGraph graph, String transportMode, String criterion) {
+        int arcCount = graph.getArcCount();
+        switch (criterion) {
+            case "time":
+                return graph.weights(transportMode);
+            case "distance":
+                return graph.weights("distance");
+            case "safety": {
+                double[] costs = new double[arcCount];
+                for (int arc = 0; arc < arcCount; arc++) {
+                    Edge edge = graph.getEdge(arc);
+                    String type = edge.getDestination().getType();
+                    boolean populated = type.equals("academic") || type.equals("residential");
+                    costs[arc] = populated || MAIN_ROADS.contains(edge.getRoadName()) ? 0.0 : edge.getDistance();
+                }
+                return costs;
+            }
+            case "accessibility": {
+                double[] costs = new double[arcCount];
+                for (int arc = 0; arc < arcCount; arc++) {
+                    Edge edge = graph.getEdge(arc);
+                    String road = edge.getRoadName() == null ? "" : edge.getRoadName();
+                    boolean paved = road.contains("Avenue") || road.contains("Road");
+                    costs[arc] = edge.isAccessible() && paved ? 0.0 : edge.getDistance();
+                }
+                return costs;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown criterion: " + criterion);
+        }
+    }
+
+    public static List<ParetoRoute> findParetoRoutes(CompactGraph graph, Location source, Location destination,
+                                                     String transportMode, String... criteria) {
+        return findParetoRoutes(graph, source, destination, transportMode, DEFAULT_MAX_LABELS_PER_NODE,
+                SearchDeadline.NONE, criteria);
+    }
+
+    public static List<ParetoRoute> findParetoRoutes(CompactGraph graph, Location source, Location destination,
+                                                     String transportMode, int maxLabelsPerNode, String... criteria) {
+        return findParetoRoutes(graph, source, destination, transportMode, maxLabelsPerNode,
+                SearchDeadline.NONE, criteria);
+    }
+
+    /**
+     * Pareto-optimal routes ordered by the first criterion
+     * maxLabelsPerNode bounds each bag; once full, a node only accepts labels that dominate one it has,
+     * which keeps the search interactive at the price of possibly thinning a very large front
+     * The deadline is checked every few labels; expiry abandons the search with CancellationException
+     */
+    public static List<ParetoRoute> findParetoRoutes(CompactGraph graph, Location source, Location destination,
+                                                     String transportMode, int maxLabelsPerNode,
+                                                     SearchDeadline deadline, String... criteria) {
+        if (criteria.length < 2 || criteria.length > 4) {
+            throw new IllegalArgumentException("Pareto search supports 2-4 criteria, got " + criteria.length);
+        }
+        int s = graph.indexOf(source);
+        int t = graph.indexOf(destination);
+        if (s < 0 || t < 0) return new ArrayList<>();
+
+        double[][] costs = new double[criteria.length][];
+        for (int c = 0; c < criteria.length; c++) costs[c] = criterionCosts(graph, transportMode, criteria[c]);
+        // Closed roads are infinite in the mode's weights; keep them closed for every criterion
+        double[] open = graph.weights(transportMode);
+
+        Search search = new Search(graph, costs, open, maxLabelsPerNode);
+        search.run(s, t, deadline);
+
+        List<ParetoRoute> front = new ArrayList<>();
+        if (search.bags[t] == null) return front; // unreachable
+        for (int i = 0; i < search.bags[t].size; i++) {
+            int label = search.bags[t].data[i];
+            if (!search.alive[label]) continue;
+            front.add(new ParetoRoute(search.buildRoute(label, s, transportMode), criteria,
+                    Arrays.copyOfRange(search.labelCosts, label * criteria.length, (label + 1) * criteria.length)));
+        }
+        front.sort(Comparator.comparingDouble(r -> r.getCost(0)));
+        return front;
+    }
+
+    /**
+     * Label storage and the label-setting loop for one query
+     */
+    private static class Search {
+        private final CompactGraph graph;
+        private final double[][] costs;
+        private final double[] open;
+        private final int k;
+        private final int maxLabelsPerNode;
+        private final IntList[] bags;
+
+        private double[] labelCosts = new double[64];
+        private int[] labelNode = new int[16];
+        private int[] labelParent = new int[16];
+        private int[] labelArc = new int[16];
+        private boolean[] alive = new boolean[16];
+        private int labelCount;
+
+        Search(CompactGraph graph, double[][] costs, double[] open, int maxLabelsPerNode) {
+            this.graph = graph;
+            this.costs = costs;
+            this.open = open;
+            this.k = costs.length;
+            this.maxLabelsPerNode = maxLabelsPerNode;
+            this.bags = new IntList[graph.getNodeCount()];
+        }
+
+        void run(int s, int t, SearchDeadline deadline) {
+            // Lexicographic order: a popped label can never be dominated by one created later
+            PriorityQueue<Integer> queue = new PriorityQueue<>((a, b) -> {
+                for (int c = 0; c < k; c++) {
+                    int cmp = Double.compare(labelCosts[a * k + c], labelCosts[b * k + c]);
+                    if (cmp != 0) return cmp;
+                }
+                return Integer.compare(a, b);
+            });
+
+            double[] candidate = new double[k];
+            queue.add(addLabel(s, -1, -1, candidate));
+            int[] offsets = graph.getOffsets();
+            int[] targets = graph.getTargets();
+            int processed = 0;
+            while (!queue.isEmpty()) {
+                int label = queue.poll();
+                if (!alive[label]) continue;
+                deadline.checkEvery(++processed);
+                int u = labelNode[label];
+                if (u == t) continue;
+
+                for (int arc = offsets[u]; arc < offsets[u + 1]; arc++) {
+                    if (open[arc] == Double.POSITIVE_INFINITY) continue;
+                    int v = targets[arc];
+                    for (int c = 0; c < k; c++) candidate[c] = labelCosts[label * k + c] + costs[c][arc];
+                    if (dominatedBy(t, candidate) || dominatedBy(v, candidate)) continue;
+                    if (!makeRoom(v, candidate)) continue;
+                    queue.add(addLabel(v, label, arc, candidate));
+                }
+            }
+        }
+
+        /**
+         * True when some live label at the node is at least as good in every criterion
+         */
+        private boolean dominatedBy(int node, double[] candidate) {
+            IntList bag = bags[node];
+            if (bag == null) return false;
+            for (int i = 0; i < bag.size; i++) {
+                int label = bag.data[i];
+                boolean dominates = true;
+                for (int c = 0; c < k && dominates; c++) {
+                    dominates = labelCosts[label * k + c] <= candidate[c];
+                }
+                if (dominates) return true;
+            }
+            return false;
+        }
+
+        /**
+         * Remove labels the candidate dominates; refuse it if the bag is still full
+         */
+        private boolean makeRoom(int node, double[] candidate) {
+            IntList bag = bags[node];
+            if (bag == null) return true;
+            for (int i = bag.size - 1; i >= 0; i--) {
+                int label = bag.data[i];
+                boolean dominated = true;
+                for (int c = 0; c < k && dominated; c++) {
+                    dominated = candidate[c] <= labelCosts[label * k + c];
+                }
+                if (dominated) {
+                    alive[label] = false;
+                    bag.data[i] = bag.data[--bag.size];
+                }
+            }
+            return bag.size < maxLabelsPerNode;
+        }
+
+        private int addLabel(int node, int parent, int arc, double[] labelCost) {
+            if (labelCount == labelNode.length) {
+                int capacity = labelCount * 2;
+                labelCosts = Arrays.copyOf(labelCosts, capacity * k);
+                labelNode = Arrays.copyOf(labelNode, capacity);
+                labelParent = Arrays.copyOf(labelParent, capacity);
+                labelArc = Arrays.copyOf(labelArc, capacity);
+                alive = Arrays.copyOf(alive, capacity);
+            }
+            if (labelCosts.length < (labelCount + 1) * k) labelCosts = Arrays.copyOf(labelCosts, labelNode.length * k);
+
+            int label = labelCount++;
+            System.arraycopy(labelCost, 0, labelCosts, label * k, k);
+            labelNode[label] = node;
+            labelParent[label] = parent;
+            labelArc[label] = arc;
+            alive[label] = true;
+            if (bags[node] == null) bags[node] = new IntList();
+            bags[node].add(label);
+            return label;
+        }
+
+        Route buildRoute(int label, int source, String transportMode) {
+            int length = 0;
+            for (int l = label; labelParent[l] >= 0; l = labelParent[l]) length++;
+            int[] arcs = new int[length];
+            for (int l = label; labelParent[l] >= 0; l = labelParent[l]) arcs[--length] = labelArc[l];
+            return graph.buildRoute(source, arcs, arcs.length, transportMode);
+        }
+    }
+
+    private static class IntList {
+        int[] data = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == data.length) data = Arrays.copyOf(data, size * 2);
+            data[size++] = value;
+        }
+    }
+}
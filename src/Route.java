@@ -31,10 +31,44 @@ class Route {
     }
 
     public void addEdge(Edge edge) {
+        addEdge(edge, edge.getWalkingTime(), edge.getDrivingTime());
+    }
+
+    /**
+     * Add an edge with the travel times of a graph snapshot rather than the live edge's
+     */
+    public void addEdge(Edge edge, double walkingTime, double drivingTime) {
         edges.add(edge);
         totalDistance += edge.getDistance();
-        totalWalkingTime += edge.getWalkingTime();
-        totalDrivingTime += edge.getDrivingTime();
+        totalWalkingTime += walkingTime;
+        totalDrivingTime += drivingTime;
+    }
+
+    /**
+     * Continue with another route that starts where this one ends, keeping its travel times
+     */
+    public void append(Route leg) {
+        List<Location> legPath = leg.getPath();
+        for (int i = path.isEmpty() ? 0 : 1; i < legPath.size(); i++) path.add(legPath.get(i));
+        edges.addAll(leg.getEdges());
+        totalDistance += leg.getTotalDistance();
+        totalWalkingTime += leg.getTotalWalkingTime();
+        totalDrivingTime += leg.getTotalDrivingTime();
+    }
+
+    /**
+     * Independent copy; annotating it leaves this route (and whoever else holds it) untouched
+     */
+    public Route copy() {
+        Route copy = new Route(transportMode);
+        copy.path.addAll(path);
+        copy.edges.addAll(edges);
+        copy.totalDistance = totalDistance;
+        copy.totalWalkingTime = totalWalkingTime;
+        copy.totalDrivingTime = totalDrivingTime;
+        copy.landmarksPassedThrough.addAll(landmarksPassedThrough);
+        copy.routeDescription = routeDescription;
+        return copy;
     }
 
     public void addLandmark(String landmark) {
@@ -0,0 +1,465 @@
+/**
+ * Bounded route cache with W-TinyLFU admission, per-entry TTL and epoch invalidation
+ * New entries land in a small LRU window; when the window overflows, its oldest entry only enters
+ * the main (segmented LRU: probation + protected) space if a count-min sketch says it is used more
+ * often than the main victim, so one-off queries cannot flush popular routes. Size and estimated
+ * memory are both bounded. Entries carry the conditions epoch they were computed in and are dropped
+ * once the epoch moves on (campus-wide traffic level changed) or their TTL runs out.
+ * A reverse index from arc id to the entries whose routes use that arc (compact int posting lists of
+ * entry slots) lets a road closure or a large local traffic change evict exactly the affected routes
+ */
+import java.util.*;
+import java.util.function.LongSupplier;
+class RouteCache {
+    private static final int WINDOW_PERCENT = 1;
+    private static final int PROTECTED_PERCENT = 80; // of the main space
+    private static final double LARGE_TRAFFIC_CHANGE = 1.5; // per-road multiplier ratio that evicts; above jitter
+    private static final int[] NO_ARCS = new int[0];
+
+    private final int maximumSize;
+    private final long maximumWeight;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final int windowMax;
+    private final int protectedMax;
+
+    // Insertion-ordered; the first entry is the least recently used
+    private final LinkedHashMap<String, Entry> window = new LinkedHashMap<>();
+    private final LinkedHashMap<String, Entry> probation = new LinkedHashMap<>();
+    private final LinkedHashMap<String, Entry> protectedSegment = new LinkedHashMap<>();
+    private final FrequencySketch sketch;
+
+    private long weight;
+    private long epoch;
+    private long stamp; // bumped by every epoch change or arc invalidation
+    private long epochStamp; // stamp at which the current epoch began
+
+    // Reverse index: postings[arc][0 .. postingSizes[arc]) are slots of entries using the arc.
+    // Removed entries are not unlinked; a posting only counts while its slot holds an entry on that arc
+    private Entry[] slots = new Entry[64];
+    private int[] freeSlots = new int[64];
+    private int freeCount;
+    private int slotCount;
+    private int[][] postings = new int[0][];
+    private int[] postingSizes = new int[0];
+    private long[] arcStamps = new long[0]; // stamp of each arc's last invalidation
+
+    // Conditions the entries were computed under, for applyConditions to diff against
+    private CompactGraph conditions;
+    private BitSet closedArcs = new BitSet();
+    private double[] baselineMultipliers;
+    private long trafficLevel;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    private static class Entry {
+        final String key;
+        final List<Route> routes;
+        final long expiresAt;
+        final long epoch;
+        final int weight;
+        final int[] arcs; // sorted, distinct
+        int slot;
+
+        Entry(String key, List<Route> routes, long expiresAt, long epoch, int weight, int[] arcs) {
+            this.key = key;
+            this.routes = routes;
+            this.expiresAt = expiresAt;
+            this.epoch = epoch;
+            this.weight = weight;
+            this.arcs = arcs;
+        }
+    }
+
+    public RouteCache(int maximumSize, long maximumWeightBytes, long ttlMillis) {
+        this(maximumSize, maximumWeightBytes, ttlMillis, System::currentTimeMillis);
+    }
+
+    RouteCache(int maximumSize, long maximumWeightBytes, long ttlMillis, LongSupplier clock) {
+        this.maximumSize = maximumSize;
+        this.maximumWeight = maximumWeightBytes;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        this.windowMax = Math.max(1, maximumSize * WINDOW_PERCENT / 100);
+        this.protectedMax = (maximumSize - windowMax) * PROTECTED_PERCENT / 100;
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    /**
+     * Cached routes, or null when absent, expired or computed under an older epoch
+     */
+    public synchronized List<Route> get(String key) {
+        sketch.increment(key);
+        Entry entry = find(key);
+        if (entry != null && (entry.epoch != epoch || clock.getAsLong() >= entry.expiresAt)) {
+            remove(entry);
+            evictions++;
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        onAccess(entry);
+        return entry.routes;
+    }
+
+    /**
+     * Like {@link #get} but without recording a hit, a miss or an access; for re-checks on the miss path
+     */
+    synchronized List<Route> peek(String key) {
+        Entry entry = find(key);
+        if (entry == null || entry.epoch != epoch || clock.getAsLong() >= entry.expiresAt) return null;
+        return entry.routes;
+    }
+
+    public void put(String key, List<Route> routes) {
+        put(key, routes, getEpoch());
+    }
+
+    /**
+     * Store routes computed under the given epoch; dropped if the epoch has moved on meanwhile
+     */
+    public synchronized void put(String key, List<Route> routes, long computedInEpoch) {
+        if (computedInEpoch != epoch) return;
+        insert(key, routes, NO_ARCS);
+    }
+
+    /**
+     * Store routes computed at the given stamp and index them by the arcs of graph they use
+     * Dropped if the epoch moved on or one of those arcs was invalidated after the stamp was taken
+     */
+    public synchronized void put(String key, List<Route> routes, long computedAtStamp, CompactGraph graph) {
+        if (computedAtStamp < epochStamp) return;
+        int[] arcs = arcsOf(routes, graph);
+        for (int arc : arcs) {
+            if (arc < arcStamps.length && arcStamps[arc] > computedAtStamp) return;
+        }
+        insert(key, routes, arcs);
+    }
+
+    /**
+     * Conditions changed: every entry computed before now becomes stale (dropped lazily on access
+     * or when it reaches the eviction end of its queue)
+     */
+    public synchronized void advanceEpoch() {
+        epoch++;
+        epochStamp = ++stamp;
+    }
+
+    public synchronized long getEpoch() { return epoch; }
+
+    /**
+     * Take before computing routes and pass to put, so results that raced an invalidation are dropped
+     */
+    public synchronized long getStamp() { return stamp; }
+
+    /**
+     * Evict exactly the entries whose routes use one of the arcs; returns how many were evicted
+     */
+    public synchronized int invalidateArcs(int... arcs) {
+        stamp++;
+        int evicted = 0;
+        for (int arc : arcs) {
+            ensureArcCapacity(arc + 1);
+            arcStamps[arc] = stamp;
+            int[] posting = postings[arc];
+            for (int i = 0; i < postingSizes[arc]; i++) {
+                Entry entry = slots[posting[i]];
+                if (entry != null && Arrays.binarySearch(entry.arcs, arc) >= 0) {
+                    remove(entry);
+                    evictions++;
+                    evicted++;
+                }
+            }
+            postingSizes[arc] = 0;
+        }
+        return evicted;
+    }
+
+    /**
+     * Diff a fresh snapshot against the conditions cached routes were computed under:
+     * a new campus-wide traffic level (mean multiplier in steps of 0.1) or topology starts a new epoch;
+     * otherwise only routes over newly closed roads or roads whose multiplier rose by more than
+     * LARGE_TRAFFIC_CHANGE are evicted. Reopened or faster roads leave cached routes valid (at worst
+     * no longer the fastest until their TTL runs out), and per-road jitter evicts nothing
+     */
+    public synchronized void applyConditions(CompactGraph snapshot) {
+        int arcCount = snapshot.getArcCount();
+        BitSet closed = new BitSet(arcCount);
+        double[] multipliers = new double[arcCount];
+        double total = 0.0;
+        for (int arc = 0; arc < arcCount; arc++) {
+            if (snapshot.isClosed(arc)) closed.set(arc);
+            multipliers[arc] = snapshot.getTrafficMultiplier(arc);
+            total += multipliers[arc];
+        }
+        long level = Math.round(10 * total / Math.max(1, arcCount));
+
+        if (!snapshot.sharesTopologyWith(conditions) || level != trafficLevel) {
+            advanceEpoch();
+        } else {
+            BitSet affected = (BitSet) closed.clone();
+            affected.andNot(closedArcs);
+            for (int arc = 0; arc < arcCount; arc++) {
+                double ratio = multipliers[arc] / baselineMultipliers[arc];
+                if (ratio > LARGE_TRAFFIC_CHANGE) {
+                    affected.set(arc);
+                } else if (ratio >= 1.0 / LARGE_TRAFFIC_CHANGE) {
+                    multipliers[arc] = baselineMultipliers[arc]; // keep measuring from the cached baseline
+                }
+            }
+            if (!affected.isEmpty()) invalidateArcs(affected.stream().toArray());
+        }
+        conditions = snapshot;
+        closedArcs = closed;
+        baselineMultipliers = multipliers;
+        trafficLevel = level;
+    }
+
+    public synchronized void clear() {
+        window.clear();
+        probation.clear();
+        protectedSegment.clear();
+        weight = 0;
+        Arrays.fill(slots, null);
+        freeCount = 0;
+        slotCount = 0;
+        Arrays.fill(postingSizes, 0);
+    }
+
+    public synchronized int size() { return window.size() + probation.size() + protectedSegment.size(); }
+    public synchronized long getWeight() { return weight; }
+    public synchronized long getHitCount() { return hits; }
+    public synchronized long getMissCount() { return misses; }
+    public synchronized long getEvictionCount() { return evictions; }
+
+    private Entry find(String key) {
+        Entry entry = window.get(key);
+        if (entry == null) entry = probation.get(key);
+        if (entry == null) entry = protectedSegment.get(key);
+        return entry;
+    }
+
+    private void insert(String key, List<Route> routes, int[] arcs) {
+        sketch.increment(key);
+        Entry existing = find(key);
+        if (existing != null) remove(existing);
+
+        Entry entry = new Entry(key, routes, clock.getAsLong() + ttlMillis, epoch, weigh(routes), arcs);
+        entry.slot = allocateSlot();
+        slots[entry.slot] = entry;
+        for (int arc : arcs) addPosting(arc, entry.slot);
+        window.put(key, entry);
+        weight += entry.weight;
+        evict();
+    }
+
+    private void remove(Entry entry) {
+        if (window.remove(entry.key) == null && probation.remove(entry.key) == null) {
+            protectedSegment.remove(entry.key);
+        }
+        discard(entry);
+    }
+
+    /**
+     * Release the weight and slot of an entry already taken out of its queue
+     */
+    private void discard(Entry entry) {
+        weight -= entry.weight;
+        slots[entry.slot] = null;
+        if (freeCount == freeSlots.length) freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        freeSlots[freeCount++] = entry.slot;
+    }
+
+    private int allocateSlot() {
+        if (freeCount > 0) return freeSlots[--freeCount];
+        if (slotCount == slots.length) slots = Arrays.copyOf(slots, slotCount * 2);
+        return slotCount++;
+    }
+
+    /**
+     * Append a slot to an arc's posting list; a full list first drops postings of departed entries
+     * and only grows if it is still full, so each list stays within twice its live entries
+     */
+    private void addPosting(int arc, int slot) {
+        ensureArcCapacity(arc + 1);
+        int[] posting = postings[arc];
+        int size = postingSizes[arc];
+        if (posting == null) {
+            posting = postings[arc] = new int[4];
+        } else if (size == posting.length) {
+            int live = 0;
+            for (int i = 0; i < size; i++) {
+                Entry entry = slots[posting[i]];
+                if (entry != null && Arrays.binarySearch(entry.arcs, arc) >= 0) {
+                    posting[live++] = posting[i];
+                }
+            }
+            size = live;
+            if (size == posting.length) posting = postings[arc] = Arrays.copyOf(posting, size * 2);
+        }
+        posting[size++] = slot;
+        postingSizes[arc] = size;
+    }
+
+    private void ensureArcCapacity(int arcCount) {
+        if (arcCount <= postings.length) return;
+        int capacity = Math.max(arcCount, postings.length * 2);
+        postings = Arrays.copyOf(postings, capacity);
+        postingSizes = Arrays.copyOf(postingSizes, capacity);
+        arcStamps = Arrays.copyOf(arcStamps, capacity);
+    }
+
+    /**
+     * Sorted distinct arc ids of every edge on the routes; edges outside the graph are skipped
+     */
+    static int[] arcsOf(List<Route> routes, CompactGraph graph) {
+        BitSet arcs = new BitSet(graph.getArcCount());
+        for (Route route : routes) {
+            for (Edge edge : route.getEdges()) {
+                int arc = graph.arcOf(edge);
+                if (arc >= 0) arcs.set(arc);
+            }
+        }
+        return arcs.stream().toArray();
+    }
+
+    /**
+     * LRU move within the window and protected space; a probation hit is promoted to protected,
+     * demoting the protected LRU back to probation when protected is full
+     */
+    private void onAccess(Entry entry) {
+        if (window.remove(entry.key) != null) {
+            window.put(entry.key, entry);
+        } else if (probation.remove(entry.key) != null) {
+            protectedSegment.put(entry.key, entry);
+            if (protectedSegment.size() > protectedMax) {
+                Entry demoted = pollFirst(protectedSegment);
+                probation.put(demoted.key, demoted);
+            }
+        } else {
+            protectedSegment.remove(entry.key);
+            protectedSegment.put(entry.key, entry);
+        }
+    }
+
+    private void evict() {
+        while (window.size() > windowMax) {
+            admit(pollFirst(window));
+        }
+        while (size() > maximumSize || weight > maximumWeight) {
+            LinkedHashMap<String, Entry> queue = !probation.isEmpty() ? probation
+                    : !protectedSegment.isEmpty() ? protectedSegment : window;
+            discard(pollFirst(queue));
+            evictions++;
+        }
+    }
+
+    /**
+     * TinyLFU admission of a window candidate into the main space
+     */
+    private void admit(Entry candidate) {
+        boolean full = size() + 1 > maximumSize || weight > maximumWeight;
+        if (full) {
+            Entry victim = firstStale();
+            if (victim == null) {
+                LinkedHashMap<String, Entry> queue = !probation.isEmpty() ? probation : protectedSegment;
+                victim = queue.isEmpty() ? null : queue.values().iterator().next();
+                if (victim != null && sketch.frequency(candidate.key) <= sketch.frequency(victim.key)) {
+                    discard(candidate); // the main victim is used more often: reject the candidate
+                    evictions++;
+                    return;
+                }
+            }
+            if (victim != null) {
+                remove(victim);
+                evictions++;
+            }
+        }
+        probation.put(candidate.key, candidate);
+    }
+
+    /**
+     * A main-space entry from an older epoch, which loses to any candidate
+     */
+    private Entry firstStale() {
+        for (Entry entry : probation.values()) {
+            if (entry.epoch != epoch) return entry;
+        }
+        return null;
+    }
+
+    private static Entry pollFirst(LinkedHashMap<String, Entry> queue) {
+        Iterator<Entry> iterator = queue.values().iterator();
+        Entry first = iterator.next();
+        iterator.remove();
+        return first;
+    }
+
+    /**
+     * Rough retained size of a cached result in bytes
+     */
+    static int weigh(List<Route> routes) {
+        int bytes = 64;
+        for (Route route : routes) {
+            bytes += 128 + 8 * (route.getPath().size() + route.getEdges().size())
+                    + 48 * route.getLandmarksPassedThrough().size();
+        }
+        return bytes;
+    }
+
+    /**
+     * Count-min sketch of 4-bit counters (4 rows) with periodic halving, so frequencies follow
+     * recent popularity rather than all-time totals
+     */
+    private static class FrequencySketch {
+        private final byte[][] rows = new byte[4][];
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int maximumSize) {
+            int width = Integer.highestOneBit(Math.max(16, maximumSize * 2) - 1) << 1;
+            for (int r = 0; r < rows.length; r++) rows[r] = new byte[width];
+            this.mask = width - 1;
+            this.sampleSize = 10 * Math.max(1, maximumSize);
+        }
+
+        void increment(String key) {
+            int hash = spread(key.hashCode());
+            for (int r = 0; r < rows.length; r++) {
+                int index = index(hash, r);
+                if (rows[r][index] < 15) rows[r][index]++;
+            }
+            if (++additions >= sampleSize) reset();
+        }
+
+        int frequency(String key) {
+            int hash = spread(key.hashCode());
+            int frequency = 15;
+            for (int r = 0; r < rows.length; r++) frequency = Math.min(frequency, rows[r][index(hash, r)]);
+            return frequency;
+        }
+
+        private int index(int hash, int row) {
+            int h = hash * (0x9E3779B9 + 2 * row) + row;
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        private void reset() {
+            for (byte[] row : rows) {
+                for (int i = 0; i < row.length; i++) row[i] >>= 1;
+            }
+            additions /= 2;
+        }
+
+        private static int spread(int hash) {
+            hash ^= hash >>> 17;
+            hash *= 0xed5ad4bb;
+            return hash ^ (hash >>> 11);
+        }
+    }
+}
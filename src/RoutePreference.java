@@ -7,6 +7,9 @@ class RoutePreferences {
     public int maxRoutes = 3;
     public String[] landmarks = null;
     public LandmarkSearch.RouteFilter filter = null;
+    public String searchAlgorithm = "astar"; // "astar", "dijkstra", "bidirectional", "bidirectional-astar", "ch", "crp"
+    public boolean parallelSearch = false; // run the two bidirectional frontiers on separate threads
+    public long latencyBudgetMillis = 0; // > 0: answer once the primary route is ready or this time has passed
 
     // Weighting factors for composite scoring (Greedy optimization)
     public double timeWeight = 0.5;
@@ -35,6 +38,24 @@ class RoutePreferences {
         return this;
     }
 
+    public RoutePreferences withSearchAlgorithm(String searchAlgorithm) {
+        this.searchAlgorithm = searchAlgorithm;
+        return this;
+    }
+
+    public RoutePreferences withParallelSearch(boolean parallelSearch) {
+        this.parallelSearch = parallelSearch;
+        return this;
+    }
+
+    /**
+     * Latency-SLO mode: remaining strategies keep running and refresh the cached result
+     */
+    public RoutePreferences withLatencyBudget(long latencyBudgetMillis) {
+        this.latencyBudgetMillis = latencyBudgetMillis;
+        return this;
+    }
+
     public RoutePreferences withWeights(double timeWeight, double distanceWeight, double landmarkWeight) {
         this.timeWeight = timeWeight;
         this.distanceWeight = distanceWeight;
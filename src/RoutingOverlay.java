@@ -0,0 +1,340 @@
+/**
+ * Customizable route planning (CRP) overlay
+ * Topology preprocessing (a nested multi-level partition and its boundary nodes) is done once;
+ * customize() then rebuilds only the per-cell boundary distance tables for new weights,
+ * in parallel across cells, so traffic refreshes never redo the partition
+ */
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+class RoutingOverlay {
+    public static final int DEFAULT_CELL_SIZE = 16;
+    private static final int LEVEL_FANOUT_BITS = 2; // each cell groups 4 cells of the level below
+
+    private final CompactGraph topology;
+    private final int levels;
+    private final int[][] cellOf;         // [level][node], level 0 is the finest partition
+    private final int[][] boundaryIndex;  // [level][node] -> position in its cell's boundary list, or -1
+    private final int[][][] boundaryNodes; // [level][cell] -> boundary nodes of that cell
+
+    private RoutingOverlay(CompactGraph topology, int levels, int[][] cellOf,
+                           int[][] boundaryIndex, int[][][] boundaryNodes) {
+        this.topology = topology;
+        this.levels = levels;
+        this.cellOf = cellOf;
+        this.boundaryIndex = boundaryIndex;
+        this.boundaryNodes = boundaryNodes;
+    }
+
+    /**
+     * Partition by recursive coordinate bisection; metric-independent, so run once per topology
+     */
+    public static RoutingOverlay build(CompactGraph graph, int maxCellSize) {
+        int n = graph.getNodeCount();
+        int depth = 1;
+        while ((n >> depth) > maxCellSize) depth++;
+
+        int[] code = new int[n];
+        Integer[] nodes = new Integer[n];
+        for (int v = 0; v < n; v++) nodes[v] = v;
+        bisect(graph, nodes, 0, n, depth, 0, code);
+
+        int levels = Math.max(1, (depth + LEVEL_FANOUT_BITS - 1) / LEVEL_FANOUT_BITS);
+        int[][] cellOf = new int[levels][n];
+        for (int level = 0; level < levels; level++) {
+            for (int v = 0; v < n; v++) {
+                cellOf[level][v] = code[v] >> (level * LEVEL_FANOUT_BITS);
+            }
+        }
+
+        // Boundary nodes have an arc (either direction, open or closed) leaving their cell
+        int[] sources = graph.getSources();
+        int[] targets = graph.getTargets();
+        int[][] boundaryIndex = new int[levels][n];
+        int[][][] boundaryNodes = new int[levels][][];
+        for (int level = 0; level < levels; level++) {
+            boolean[] isBoundary = new boolean[n];
+            for (int arc = 0; arc < targets.length; arc++) {
+                if (cellOf[level][sources[arc]] != cellOf[level][targets[arc]]) {
+                    isBoundary[sources[arc]] = true;
+                    isBoundary[targets[arc]] = true;
+                }
+            }
+
+            int cellCount = (1 << depth) >> (level * LEVEL_FANOUT_BITS);
+            List<List<Integer>> perCell = new ArrayList<>();
+            for (int c = 0; c < cellCount; c++) perCell.add(new ArrayList<>());
+            Arrays.fill(boundaryIndex[level], -1);
+            for (int v = 0; v < n; v++) {
+                if (isBoundary[v]) {
+                    List<Integer> list = perCell.get(cellOf[level][v]);
+                    boundaryIndex[level][v] = list.size();
+                    list.add(v);
+                }
+            }
+
+            boundaryNodes[level] = new int[cellCount][];
+            for (int c = 0; c < cellCount; c++) {
+                boundaryNodes[level][c] = perCell.get(c).stream().mapToInt(Integer::intValue).toArray();
+            }
+        }
+
+        return new RoutingOverlay(graph, levels, cellOf, boundaryIndex, boundaryNodes);
+    }
+
+    private static void bisect(CompactGraph graph, Integer[] nodes, int from, int to, int depth,
+                               int prefix, int[] code) {
+        if (depth == 0) {
+            for (int i = from; i < to; i++) code[nodes[i]] = prefix;
+            return;
+        }
+
+        // Split along the wider coordinate extent at the median
+        double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE;
+        double minLon = Double.MAX_VALUE, maxLon = -Double.MAX_VALUE;
+        for (int i = from; i < to; i++) {
+            Location location = graph.getLocation(nodes[i]);
+            minLat = Math.min(minLat, location.getLatitude());
+            maxLat = Math.max(maxLat, location.getLatitude());
+            minLon = Math.min(minLon, location.getLongitude());
+            maxLon = Math.max(maxLon, location.getLongitude());
+        }
+        Comparator<Integer> axis = (maxLat - minLat) >= (maxLon - minLon)
+                ? Comparator.comparingDouble(v -> graph.getLocation(v).getLatitude())
+                : Comparator.comparingDouble(v -> graph.getLocation(v).getLongitude());
+        Arrays.sort(nodes, from, to, axis);
+
+        int middle = (from + to) >>> 1;
+        bisect(graph, nodes, from, middle, depth - 1, prefix << 1, code);
+        bisect(graph, nodes, middle, to, depth - 1, (prefix << 1) | 1, code);
+    }
+
+    public CompactGraph getTopology() { return topology; }
+    public int getLevelCount() { return levels; }
+
+    /**
+     * Customization: boundary-to-boundary tables for every cell, bottom level first
+     * Cells of one level are independent and are processed in parallel
+     */
+    public Metric customize(CompactGraph snapshot, String transportMode) {
+        return customize(snapshot, transportMode, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Same, with the cells of each level processed on the given pool
+     */
+    public Metric customize(CompactGraph snapshot, String transportMode, ForkJoinPool pool) {
+        if (!topology.sharesTopologyWith(snapshot)) {
+            throw new IllegalArgumentException("Snapshot does not match the overlay topology");
+        }
+        double[] weights = snapshot.weights(transportMode);
+        double[][][] tables = new double[levels][][];
+        for (int level = 0; level < levels; level++) {
+            int current = level;
+            tables[level] = new double[boundaryNodes[level].length][];
+            pool.submit(() -> IntStream.range(0, boundaryNodes[current].length).parallel().forEach(cell ->
+                    tables[current][cell] = customizeCell(snapshot, weights, tables, current, cell))).join();
+        }
+        return new Metric(snapshot, transportMode, tables);
+    }
+
+    private double[] customizeCell(CompactGraph snapshot, double[] weights, double[][][] tables,
+                                   int level, int cell) {
+        int[] boundary = boundaryNodes[level][cell];
+        int b = boundary.length;
+        double[] table = new double[b * b];
+
+        try (SearchWorkspace workspace = SearchWorkspace.acquire(snapshot.getNodeCount())) {
+            for (int i = 0; i < b; i++) {
+                workspace.beginQuery();
+                workspace.start(boundary[i], 0.0);
+                IndexedMinHeap heap = workspace.heap();
+                while (!heap.isEmpty()) {
+                    int u = heap.poll();
+                    workspace.settle(u);
+                    double du = workspace.distance(u);
+                    if (level == 0) {
+                        relaxInsideCell(snapshot, weights, workspace, u, du, 0, cell);
+                    } else {
+                        // Child-level cliques plus original arcs between child cells of this cell
+                        int child = cellOf[level - 1][u];
+                        relaxClique(tables[level - 1][child], boundaryNodes[level - 1][child],
+                                boundaryIndex[level - 1][u], workspace, du);
+                        relaxCrossing(snapshot, weights, workspace, u, du, level - 1, child, level, cell);
+                    }
+                }
+                for (int j = 0; j < b; j++) {
+                    table[i * b + j] = workspace.distance(boundary[j]);
+                }
+            }
+        }
+        return table;
+    }
+
+    private void relaxInsideCell(CompactGraph snapshot, double[] weights, SearchWorkspace workspace,
+                                 int u, double du, int level, int cell) {
+        int[] offsets = snapshot.getOffsets();
+        int[] targets = snapshot.getTargets();
+        for (int arc = offsets[u]; arc < offsets[u + 1]; arc++) {
+            int v = targets[arc];
+            if (cellOf[level][v] != cell || weights[arc] == Double.POSITIVE_INFINITY) continue;
+            workspace.relax(v, du + weights[arc], arc, du + weights[arc]);
+        }
+    }
+
+    private void relaxClique(double[] table, int[] boundary, int from, SearchWorkspace workspace, double du) {
+        if (from < 0) return;
+        int b = boundary.length;
+        for (int j = 0; j < b; j++) {
+            double w = table[from * b + j];
+            if (j != from && w != Double.POSITIVE_INFINITY) {
+                workspace.relax(boundary[j], du + w, -2 - boundary[from], du + w);
+            }
+        }
+    }
+
+    /**
+     * Original arcs leaving u's cell at childLevel while staying inside `cell` at `level`
+     * (level == levels means "anywhere")
+     */
+    private void relaxCrossing(CompactGraph snapshot, double[] weights, SearchWorkspace workspace, int u,
+                               double du, int childLevel, int childCell, int level, int cell) {
+        int[] offsets = snapshot.getOffsets();
+        int[] targets = snapshot.getTargets();
+        for (int arc = offsets[u]; arc < offsets[u + 1]; arc++) {
+            int v = targets[arc];
+            if (cellOf[childLevel][v] == childCell || weights[arc] == Double.POSITIVE_INFINITY) continue;
+            if (level < levels && cellOf[level][v] != cell) continue;
+            workspace.relax(v, du + weights[arc], arc, du + weights[arc]);
+        }
+    }
+
+    /**
+     * Weights-dependent part of the overlay: one set of cell tables per snapshot and mode
+     */
+    public class Metric {
+        private final CompactGraph graph;
+        private final String transportMode;
+        private final double[] weights;
+        private final double[][][] tables; // [level][cell] -> row-major boundary x boundary distances
+
+        private Metric(CompactGraph graph, String transportMode, double[][][] tables) {
+            this.graph = graph;
+            this.transportMode = transportMode;
+            this.weights = graph.weights(transportMode);
+            this.tables = tables;
+        }
+
+        public CompactGraph getGraph() { return graph; }
+
+        /**
+         * Multi-level Dijkstra: original arcs near s and t, cell cliques everywhere else
+         */
+        public Route findShortestPath(Location source, Location destination) {
+            return findShortestPath(source, destination, SearchDeadline.NONE);
+        }
+
+        /**
+         * Same query; the search and the unpacking check the deadline and are abandoned with
+         * CancellationException
+         */
+        public Route findShortestPath(Location source, Location destination, SearchDeadline deadline) {
+            int s = graph.indexOf(source);
+            int t = graph.indexOf(destination);
+            if (s < 0 || t < 0) return null;
+
+            try (SearchWorkspace workspace = SearchWorkspace.acquire(graph.getNodeCount())) {
+                if (search(s, t, workspace, deadline) == Double.POSITIVE_INFINITY) return null;
+
+                // Walk back; clique hops are stored as -2 - fromNode and unpacked inside their cell
+                List<int[]> hops = new ArrayList<>(); // {fromNode, toNode, arcOrMinusOne}
+                for (int v = t; v != s; ) {
+                    int predecessor = workspace.predecessorArc(v);
+                    int from = predecessor >= 0 ? graph.getSources()[predecessor] : -2 - predecessor;
+                    hops.add(new int[]{from, v, predecessor});
+                    v = from;
+                }
+                Collections.reverse(hops);
+
+                List<Integer> arcs = new ArrayList<>();
+                for (int[] hop : hops) {
+                    if (hop[2] >= 0) {
+                        arcs.add(hop[2]);
+                    } else {
+                        int level = queryLevel(hop[0], s, t) - 1;
+                        unpackInsideCell(hop[0], hop[1], level, cellOf[level][hop[0]], arcs, deadline);
+                    }
+                }
+
+                int[] path = new int[arcs.size()];
+                for (int i = 0; i < path.length; i++) path[i] = arcs.get(i);
+                return graph.buildRoute(s, path, path.length, transportMode);
+            }
+        }
+
+        public double distance(int source, int target) {
+            try (SearchWorkspace workspace = SearchWorkspace.acquire(graph.getNodeCount())) {
+                return search(source, target, workspace, SearchDeadline.NONE);
+            }
+        }
+
+        private double search(int s, int t, SearchWorkspace workspace, SearchDeadline deadline) {
+            IndexedMinHeap heap = workspace.heap();
+            workspace.start(s, 0.0);
+            int settled = 0;
+            while (!heap.isEmpty()) {
+                deadline.checkEvery(++settled);
+                int u = heap.poll();
+                workspace.settle(u);
+                if (u == t) break;
+
+                double du = workspace.distance(u);
+                int level = queryLevel(u, s, t);
+                if (level == 0 || boundaryIndex[level - 1][u] < 0) {
+                    relaxCrossing(graph, weights, workspace, u, du, 0, -1, levels, -1);
+                } else {
+                    int cell = cellOf[level - 1][u];
+                    relaxClique(tables[level - 1][cell], boundaryNodes[level - 1][cell],
+                            boundaryIndex[level - 1][u], workspace, du);
+                    relaxCrossing(graph, weights, workspace, u, du, level - 1, cell, levels, -1);
+                }
+            }
+            return workspace.distance(t);
+        }
+
+        /**
+         * Number of partition levels (counted from the finest) at which v shares a cell
+         * with neither s nor t; 0 means v is in the same finest cell as one of them
+         */
+        private int queryLevel(int v, int s, int t) {
+            for (int level = levels - 1; level >= 0; level--) {
+                int cell = cellOf[level][v];
+                if (cell != cellOf[level][s] && cell != cellOf[level][t]) return level + 1;
+            }
+            return 0;
+        }
+
+        private void unpackInsideCell(int from, int to, int level, int cell, List<Integer> out,
+                                      SearchDeadline deadline) {
+            try (SearchWorkspace workspace = SearchWorkspace.acquire(graph.getNodeCount())) {
+                IndexedMinHeap heap = workspace.heap();
+                workspace.start(from, 0.0);
+                int settled = 0;
+                while (!heap.isEmpty()) {
+                    deadline.checkEvery(++settled);
+                    int u = heap.poll();
+                    workspace.settle(u);
+                    if (u == to) break;
+                    relaxInsideCell(graph, weights, workspace, u, workspace.distance(u), level, cell);
+                }
+
+                List<Integer> segment = new ArrayList<>();
+                for (int v = to; v != from; v = graph.getSources()[workspace.predecessorArc(v)]) {
+                    segment.add(workspace.predecessorArc(v));
+                }
+                Collections.reverse(segment);
+                out.addAll(segment);
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * Cooperative cancellation token shared by every search of one query
+ * Search loops call checkEvery with their settled-node count; once the budget is gone, the token
+ * is cancelled or the worker thread is interrupted, the next check throws CancellationException,
+ * so the whole fan-out of a query unwinds together and frees its pool threads
+ */
+import java.util.concurrent.CancellationException;
+class SearchDeadline {
+    public static final SearchDeadline NONE = new SearchDeadline(0); // never expires
+    static final int CHECK_INTERVAL = 64; // settled nodes between checks; a power of two
+
+    private final long deadlineNanos;
+    private volatile boolean cancelled;
+
+    private SearchDeadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    public static SearchDeadline after(long budgetMillis) {
+        return new SearchDeadline(System.nanoTime() + budgetMillis * 1_000_000L);
+    }
+
+    /**
+     * Stop every search holding this token at its next check
+     */
+    public void cancel() {
+        if (this != NONE) cancelled = true;
+    }
+
+    public boolean isExpired() {
+        if (this == NONE) return false;
+        return cancelled || Thread.currentThread().isInterrupted()
+                || System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    public long remainingMillis() {
+        if (this == NONE) return Long.MAX_VALUE;
+        return cancelled ? 0 : Math.max(0, (deadlineNanos - System.nanoTime()) / 1_000_000L);
+    }
+
+    public void check() {
+        if (isExpired()) throw new CancellationException("Search budget exhausted");
+    }
+
+    /**
+     * Check on the first call and then once every CHECK_INTERVAL, keyed by the caller's own count
+     */
+    public void checkEvery(int count) {
+        if ((count & (CHECK_INTERVAL - 1)) == 1) check();
+    }
+}
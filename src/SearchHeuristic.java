@@ -0,0 +1,7 @@
+/**
+ * Lower bound on the shortest-path cost between two snapshot nodes
+ * Implementations must be admissible and consistent so goal-directed searches stay exact
+ */
+interface SearchHeuristic {
+    double estimate(int from, int to);
+}
@@ -0,0 +1,140 @@
+/**
+ * Reusable per-thread search state for the array-based pathfinders
+ * Each node's entries are tagged with the query version that wrote them, so
+ * starting a new query is O(1) instead of an O(V) reset
+ */
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.*;
+class SearchWorkspace implements AutoCloseable {
+    // Atomic element access so a concurrent search (e.g. the other frontier) can read this one safely
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final VarHandle DOUBLES = MethodHandles.arrayElementVarHandle(double[].class);
+
+    // A small stack per thread lets one thread hold several workspaces (e.g. bidirectional search)
+    private static final ThreadLocal<ArrayDeque<SearchWorkspace>> POOL =
+            ThreadLocal.withInitial(ArrayDeque::new);
+
+    private double[] distance;
+    private int[] predecessorArc;
+    private int[] reachedVersion;
+    private int[] settledVersion;
+    private int version;
+    private final IndexedMinHeap heap;
+
+    private SearchWorkspace(int capacity) {
+        this.distance = new double[capacity];
+        this.predecessorArc = new int[capacity];
+        this.reachedVersion = new int[capacity];
+        this.settledVersion = new int[capacity];
+        this.heap = new IndexedMinHeap(capacity);
+    }
+
+    /**
+     * Borrow a workspace for the calling thread, sized for the given graph
+     * Must be closed on the same thread (try-with-resources)
+     */
+    public static SearchWorkspace acquire(int nodeCount) {
+        SearchWorkspace workspace = POOL.get().poll();
+        if (workspace == null) {
+            workspace = new SearchWorkspace(nodeCount);
+        }
+        workspace.ensureCapacity(nodeCount);
+        workspace.beginQuery();
+        return workspace;
+    }
+
+    @Override
+    public void close() {
+        POOL.get().push(this);
+    }
+
+    private void ensureCapacity(int nodeCount) {
+        if (nodeCount > distance.length) {
+            distance = Arrays.copyOf(distance, nodeCount);
+            predecessorArc = Arrays.copyOf(predecessorArc, nodeCount);
+            reachedVersion = Arrays.copyOf(reachedVersion, nodeCount);
+            settledVersion = Arrays.copyOf(settledVersion, nodeCount);
+            heap.ensureCapacity(nodeCount);
+        }
+    }
+
+    /**
+     * Invalidate every node entry by moving to a fresh version
+     */
+    public void beginQuery() {
+        if (++version == Integer.MAX_VALUE) {
+            // Wrapped around: clear the stamps once so stale entries can never match
+            Arrays.fill(reachedVersion, 0);
+            Arrays.fill(settledVersion, 0);
+            version = 1;
+        }
+        heap.clear();
+    }
+
+    public IndexedMinHeap heap() { return heap; }
+    public int[] predecessorArcs() { return predecessorArc; }
+
+    public boolean isReached(int node) { return reachedVersion[node] == version; }
+    public boolean isSettled(int node) { return settledVersion[node] == version; }
+    public void settle(int node) { settledVersion[node] = version; }
+
+    public double distance(int node) {
+        return reachedVersion[node] == version ? distance[node] : Double.POSITIVE_INFINITY;
+    }
+
+    public int predecessorArc(int node) {
+        return reachedVersion[node] == version ? predecessorArc[node] : -1;
+    }
+
+    /**
+     * Record the search root
+     */
+    public void start(int node, double key) {
+        DOUBLES.setOpaque(distance, node, 0.0);
+        predecessorArc[node] = -1;
+        INTS.setRelease(reachedVersion, node, version);
+        heap.insert(node, key);
+    }
+
+    /**
+     * Offer a tentative distance; queues or decrease-keys the node when it improves
+     * The heap key may differ from the distance (e.g. A* adds a heuristic)
+     */
+    public boolean relax(int node, double newDistance, int arc, double key) {
+        if (reachedVersion[node] != version) {
+            DOUBLES.setOpaque(distance, node, newDistance);
+            predecessorArc[node] = arc;
+            INTS.setRelease(reachedVersion, node, version); // publish after the distance is written
+            heap.insert(node, key);
+            return true;
+        }
+        if (newDistance < distance[node] && settledVersion[node] != version) {
+            DOUBLES.setOpaque(distance, node, newDistance);
+            predecessorArc[node] = arc;
+            heap.decreaseKey(node, key);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Settle with a volatile write, pairing with isSettledShared on another thread
+     */
+    public void settleShared(int node) {
+        INTS.setVolatile(settledVersion, node, version);
+    }
+
+    /**
+     * Thread-safe distance read for a search running concurrently against this workspace
+     * The volatile settled check pairs with settleShared, so a settled distance is always final;
+     * a reached-but-unsettled distance is only an upper bound
+     */
+    public double distanceShared(int node) {
+        boolean settled = (int) INTS.getVolatile(settledVersion, node) == version;
+        if (!settled && (int) INTS.getAcquire(reachedVersion, node) != version) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return (double) DOUBLES.getOpaque(distance, node);
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * Earliest-arrival search over time-dependent arc costs
+ * Each arc is priced at the moment it is entered; with FIFO profiles Dijkstra on arrival times
+ * stays exact, and A* may use any bound that holds for the cheapest time of day
+ */
+class TimeDependentPathfinder {
+
+    public static class TimedRoute {
+        private final Route route;
+        private final double departureMinute;
+        private final double[] arrivalMinutes; // at each location of the route, in order
+
+        TimedRoute(Route route, double departureMinute, double[] arrivalMinutes) {
+            this.route = route;
+            this.departureMinute = departureMinute;
+            this.arrivalMinutes = arrivalMinutes;
+        }
+
+        public Route getRoute() { return route; }
+        public double getDepartureMinute() { return departureMinute; }
+        public double getArrivalMinute() { return arrivalMinutes[arrivalMinutes.length - 1]; }
+        public double getTravelMinutes() { return getArrivalMinute() - departureMinute; }
+
+        /**
+         * Minute of day (may run past 1440 for overnight trips) at the i-th route location
+         */
+        public double getArrivalMinute(int index) { return arrivalMinutes[index]; }
+    }
+
+    /**
+     * departureMinute: minutes since midnight of the departure day
+     * useHeuristic: A* with a haversine bound scaled to the cheapest time of day
+     */
+    public static TimedRoute findEarliestArrival(TrafficProfiles profiles, Location source, Location destination,
+                                                 double departureMinute, boolean useHeuristic) {
+        CompactGraph graph = profiles.getGraph();
+        int s = graph.indexOf(source);
+        int t = graph.indexOf(destination);
+        if (s < 0 || t < 0) return null;
+
+        SearchHeuristic heuristic = useHeuristic ? new GeometricHeuristic(graph, profiles.getLowerBounds()) : null;
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
+
+        try (SearchWorkspace workspace = SearchWorkspace.acquire(graph.getNodeCount())) {
+            IndexedMinHeap heap = workspace.heap();
+            workspace.start(s, heuristic == null ? 0.0 : heuristic.estimate(s, t));
+            while (!heap.isEmpty()) {
+                int u = heap.poll();
+                workspace.settle(u);
+                if (u == t) break;
+
+                double elapsed = workspace.distance(u);
+                double now = departureMinute + elapsed;
+                for (int arc = offsets[u]; arc < offsets[u + 1]; arc++) {
+                    double cost = profiles.travelTime(arc, now);
+                    if (cost == Double.POSITIVE_INFINITY) continue;
+                    int v = targets[arc];
+                    double arrival = elapsed + cost;
+                    workspace.relax(v, arrival, arc, heuristic == null ? arrival : arrival + heuristic.estimate(v, t));
+                }
+            }
+
+            if (workspace.distance(t) == Double.POSITIVE_INFINITY) return null;
+
+            int[] sources = graph.getSources();
+            int hops = 1;
+            for (int v = t; v != s; v = sources[workspace.predecessorArc(v)]) hops++;
+            int[] arcs = new int[hops - 1];
+            double[] arrivals = new double[hops];
+            for (int v = t, i = hops - 1; i >= 0; i--) {
+                arrivals[i] = departureMinute + workspace.distance(v);
+                if (i > 0) {
+                    arcs[i - 1] = workspace.predecessorArc(v);
+                    v = sources[arcs[i - 1]];
+                }
+            }
+            return new TimedRoute(buildTimedRoute(profiles, s, arcs, arrivals), departureMinute, arrivals);
+        }
+    }
+
+    /**
+     * Route whose travel times are the profile costs at each arc's entry minute, so its total
+     * agrees with the timed arrivals; the other mode keeps the snapshot's frozen times
+     */
+    private static Route buildTimedRoute(TrafficProfiles profiles, int source, int[] arcs, double[] arrivals) {
+        CompactGraph graph = profiles.getGraph();
+        String mode = profiles.getTransportMode();
+        boolean walking = mode.equals("walking");
+        int[] targets = graph.getTargets();
+
+        Route route = new Route(mode);
+        route.addLocation(graph.getLocation(source));
+        for (int i = 0; i < arcs.length; i++) {
+            int arc = arcs[i];
+            Edge edge = graph.getEdge(arc);
+            double multiplier = graph.getTrafficMultiplier(arc);
+            double cost = profiles.travelTime(arc, arrivals[i]);
+            route.addLocation(graph.getLocation(targets[arc]));
+            route.addEdge(edge, walking ? cost : edge.getBaseWalkingTime() * multiplier,
+                    walking ? edge.getBaseDrivingTime() * multiplier : cost);
+        }
+        return route;
+    }
+}
@@ -0,0 +1,223 @@
+/**
+ * Visiting order for multi-stop tours: fixed start, a set of stops in any order, optional fixed end
+ * Leg costs come from one many-to-many matrix over the contraction hierarchy; up to HELD_KARP_LIMIT
+ * stops are ordered exactly with Held-Karp, larger sets start from nearest neighbour and improve
+ * with 2-opt and Or-opt moves until no move helps or the time budget runs out
+ */
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+class TourOptimizer {
+    public static final int HELD_KARP_LIMIT = 15;
+
+    public static class Tour {
+        private final List<Location> stops;
+        private final Route route;
+        private final boolean optimal;
+
+        Tour(List<Location> stops, Route route, boolean optimal) {
+            this.stops = stops;
+            this.route = route;
+            this.optimal = optimal;
+        }
+
+        /**
+         * Start, stops in visiting order, then the end when one was given
+         */
+        public List<Location> getStops() { return stops; }
+
+        /**
+         * All legs stitched into one route
+         */
+        public Route getRoute() { return route; }
+
+        /**
+         * True when the order came from Held-Karp rather than local search
+         */
+        public boolean isOptimal() { return optimal; }
+    }
+
+    /**
+     * end may be null to finish at whichever stop is visited last
+     * Returns null when some stop cannot be reached
+     */
+    public static Tour optimize(ContractionHierarchy hierarchy, Location start, List<Location> stops, Location end,
+                                long budgetMillis, ForkJoinPool pool) {
+        CompactGraph graph = hierarchy.getGraph();
+        int m = stops.size();
+        int finish = m + 1; // tour positions: 0 = start, 1..m = stops, m + 1 = end
+        int[] nodes = new int[m + 2];
+        nodes[0] = graph.indexOf(start);
+        for (int i = 0; i < m; i++) nodes[i + 1] = graph.indexOf(stops.get(i));
+        nodes[finish] = end == null ? nodes[0] : graph.indexOf(end);
+
+        double[][] cost = hierarchy.distanceMatrix(nodes, nodes, pool);
+        if (end == null) {
+            for (int i = 0; i <= m; i++) cost[i][finish] = 0.0; // free to stop anywhere
+        }
+
+        int[] order;
+        boolean optimal = m <= HELD_KARP_LIMIT;
+        if (optimal) {
+            order = heldKarp(cost, m);
+        } else {
+            order = nearestNeighbour(cost, m);
+            improve(cost, order, System.nanoTime() + budgetMillis * 1_000_000L);
+        }
+        if (order == null || tourCost(cost, order) == Double.POSITIVE_INFINITY) return null;
+
+        List<Location> visited = new ArrayList<>();
+        visited.add(start);
+        for (int i = 1; i <= m; i++) visited.add(stops.get(order[i] - 1));
+        if (end != null) visited.add(end);
+        return new Tour(visited, stitch(hierarchy, visited), optimal);
+    }
+
+    /**
+     * Exact order by DP over (visited set, last stop); O(2^m * m^2) time
+     */
+    private static int[] heldKarp(double[][] cost, int m) {
+        int finish = m + 1;
+        int full = (1 << m) - 1;
+        double[] best = new double[(full + 1) * Math.max(m, 1)];
+        byte[] previous = new byte[best.length];
+        Arrays.fill(best, Double.POSITIVE_INFINITY);
+        for (int j = 0; j < m; j++) best[(1 << j) * m + j] = cost[0][j + 1];
+
+        for (int mask = 1; mask <= full; mask++) {
+            for (int last = 0; last < m; last++) {
+                double here = best[mask * m + last];
+                if ((mask & (1 << last)) == 0 || here == Double.POSITIVE_INFINITY) continue;
+                for (int next = 0; next < m; next++) {
+                    if ((mask & (1 << next)) != 0) continue;
+                    int slot = (mask | (1 << next)) * m + next;
+                    double candidate = here + cost[last + 1][next + 1];
+                    if (candidate < best[slot]) {
+                        best[slot] = candidate;
+                        previous[slot] = (byte) last;
+                    }
+                }
+            }
+        }
+
+        int[] order = new int[m + 2];
+        order[finish] = finish;
+        if (m == 0) return order;
+        int last = -1;
+        double total = Double.POSITIVE_INFINITY;
+        for (int j = 0; j < m; j++) {
+            double candidate = best[full * m + j] + cost[j + 1][finish];
+            if (candidate < total) {
+                total = candidate;
+                last = j;
+            }
+        }
+        if (last < 0) return null;
+        for (int mask = full, position = m; position >= 1; position--) {
+            order[position] = last + 1;
+            int before = previous[mask * m + last];
+            mask &= ~(1 << last);
+            last = before;
+        }
+        return order;
+    }
+
+    private static int[] nearestNeighbour(double[][] cost, int m) {
+        int[] order = new int[m + 2];
+        order[m + 1] = m + 1;
+        boolean[] used = new boolean[m + 1];
+        for (int position = 1; position <= m; position++) {
+            int from = order[position - 1];
+            int pick = -1;
+            for (int stop = 1; stop <= m; stop++) {
+                if (!used[stop] && (pick < 0 || cost[from][stop] < cost[from][pick])) pick = stop;
+            }
+            used[pick] = true;
+            order[position] = pick;
+        }
+        return order;
+    }
+
+    /**
+     * First-improvement 2-opt (segment reversal) and Or-opt (move 1-3 consecutive stops) on the
+     * open tour; costs may be asymmetric, so reversals are priced with prefix sums in both directions
+     */
+    private static void improve(double[][] cost, int[] order, long deadline) {
+        int last = order.length - 2; // final movable position
+        double[] forward = new double[order.length];
+        double[] backward = new double[order.length];
+        boolean improved = true;
+        while (improved && System.nanoTime() < deadline) {
+            improved = false;
+            for (int p = 1; p < order.length; p++) {
+                forward[p] = forward[p - 1] + cost[order[p - 1]][order[p]];
+                backward[p] = backward[p - 1] + cost[order[p]][order[p - 1]];
+            }
+
+            // 2-opt: reverse positions i..j
+            for (int i = 1; i < last && !improved; i++) {
+                for (int j = i + 1; j <= last && !improved; j++) {
+                    double before = forward[j + 1] - forward[i - 1];
+                    double after = cost[order[i - 1]][order[j]] + (backward[j] - backward[i])
+                            + cost[order[i]][order[j + 1]];
+                    if (after < before - 1e-9) {
+                        for (int a = i, b = j; a < b; a++, b--) {
+                            int swap = order[a];
+                            order[a] = order[b];
+                            order[b] = swap;
+                        }
+                        improved = true;
+                    }
+                }
+            }
+
+            // Or-opt: move positions i..i+length-1 between positions k and k+1
+            for (int length = 1; length <= 3 && !improved; length++) {
+                for (int i = 1; i + length - 1 <= last && !improved; i++) {
+                    int first = order[i];
+                    int end = order[i + length - 1];
+                    double removed = cost[order[i - 1]][first] + cost[end][order[i + length]]
+                            - cost[order[i - 1]][order[i + length]];
+                    for (int k = 0; k <= last && !improved; k++) {
+                        if (k >= i - 1 && k <= i + length - 1) continue;
+                        double inserted = cost[order[k]][first] + cost[end][order[k + 1]]
+                                - cost[order[k]][order[k + 1]];
+                        if (inserted < removed - 1e-9) {
+                            moveSegment(order, i, length, k);
+                            improved = true;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Move order[i..i+length-1] so it follows the element currently at position k
+     */
+    private static void moveSegment(int[] order, int i, int length, int k) {
+        int[] segment = Arrays.copyOfRange(order, i, i + length);
+        if (k < i) {
+            System.arraycopy(order, k + 1, order, k + 1 + length, i - k - 1);
+            System.arraycopy(segment, 0, order, k + 1, length);
+        } else {
+            System.arraycopy(order, i + length, order, i, k - i - length + 1);
+            System.arraycopy(segment, 0, order, k - length + 1, length);
+        }
+    }
+
+    static double tourCost(double[][] cost, int[] order) {
+        double total = 0.0;
+        for (int p = 1; p < order.length; p++) total += cost[order[p - 1]][order[p]];
+        return total;
+    }
+
+    private static Route stitch(ContractionHierarchy hierarchy, List<Location> visited) {
+        Route combined = new Route(hierarchy.getTransportMode());
+        combined.addLocation(visited.get(0));
+        for (int i = 1; i < visited.size(); i++) {
+            combined.append(hierarchy.findShortestPath(visited.get(i - 1), visited.get(i)));
+            if (i < visited.size() - 1) combined.addLandmark(visited.get(i).getName());
+        }
+        return combined;
+    }
+}
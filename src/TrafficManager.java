@@ -2,50 +2,75 @@
  * Traffic management system for dynamic route optimization
  */
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.time.*;
 class TrafficManager {
-    private Map<String, Double> currentTrafficConditions;
+    public static final String SIMULATE_CLOSURES_PROPERTY = "ugnavigate.simulateClosures"; // "true" to enable
+
+    private Map<String, Double> currentTrafficConditions; // written by refreshes, copied by queries
     private Random random;
+    private volatile boolean simulatingClosures;
 
     public TrafficManager() {
-        this.currentTrafficConditions = new HashMap<>();
+        this.currentTrafficConditions = new ConcurrentHashMap<>();
         this.random = new Random();
+        this.simulatingClosures = Boolean.getBoolean(SIMULATE_CLOSURES_PROPERTY);
+    }
+
+    /**
+     * Random road closures on every update are a demo feature, off unless asked for: each one
+     * invalidates cached routes and skews the hourly traffic profiles
+     */
+    public void setSimulatingClosures(boolean simulatingClosures) {
+        this.simulatingClosures = simulatingClosures;
     }
 
+    public boolean isSimulatingClosures() { return simulatingClosures; }
+
     /**
-     * Update traffic conditions (simulated for demo)
+     * Update traffic conditions (simulated for demo) on the live edges of a graph, all in one step
      */
     public void updateTrafficConditions(CampusGraph graph) {
+        CompactGraph topology = graph.snapshot();
+        double[] multipliers = new double[topology.getArcCount()];
+        boolean[] closures = new boolean[multipliers.length];
+        simulateConditions(topology, multipliers, closures);
+        graph.applyConditions(topology, multipliers, closures);
+    }
+
+    /**
+     * Simulated multiplier and closure of every arc of a snapshot, written into the given arrays
+     * rather than the live edges so the caller can publish them as one new snapshot
+     */
+    public void simulateConditions(CompactGraph topology, double[] multipliers, boolean[] closures) {
         // Simulate traffic conditions based on time of day
         LocalDateTime now = LocalDateTime.now();
         double trafficMultiplier = calculateTrafficMultiplier(now);
 
-        for (Location location : graph.getAllLocations()) {
-            for (Edge edge : graph.getNeighbors(location)) {
-                // Add some randomness to traffic conditions
-                double variation = 0.8 + (random.nextDouble() * 0.4); // 0.8 to 1.2
-                double finalMultiplier = trafficMultiplier * variation;
-                edge.setTrafficMultiplier(finalMultiplier);
+        for (int arc = 0; arc < topology.getArcCount(); arc++) {
+            // Add some randomness to traffic conditions
+            double variation = 0.8 + (random.nextDouble() * 0.4); // 0.8 to 1.2
+            multipliers[arc] = trafficMultiplier * variation;
 
-                // Record per-road traffic multiplier so RouteUpdate can surface alerts
-                String roadKey = edge.getRoadName();
-                if (roadKey != null && !roadKey.isEmpty()) {
-                    currentTrafficConditions.put(roadKey, finalMultiplier);
-                }
-
-                // Occasionally simulate road closures (reduced chance for stability)
-                if (random.nextDouble() < 0.02) {
-                    edge.setClosed(true);
-                } else {
-                    edge.setClosed(false);
-                }
+            // Record per-road traffic multiplier so RouteUpdate can surface alerts
+            String roadKey = topology.getEdge(arc).getRoadName();
+            if (roadKey != null && !roadKey.isEmpty()) {
+                currentTrafficConditions.put(roadKey, multipliers[arc]);
             }
+
+            // Occasionally simulate road closures (reduced chance for stability)
+            closures[arc] = simulatingClosures && random.nextDouble() < 0.02;
         }
     }
 
     private double calculateTrafficMultiplier(LocalDateTime time) {
-        int hour = time.getHour();
+        return getHourlyMultiplier(time.getHour());
+    }
 
+    /**
+     * Expected campus-wide multiplier for an hour of the day (0-23), without random variation
+     */
+    public double getHourlyMultiplier(int hour) {
         // Peak hours: 8-9 AM and 5-6 PM
         if ((hour >= 8 && hour <= 9) || (hour >= 17 && hour <= 18)) {
             return 1.5; // 50% longer travel time
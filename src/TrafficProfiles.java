@@ -0,0 +1,139 @@
+/**
+ * Time-dependent arc costs: one piecewise-linear travel-time profile per arc over a 24-hour day
+ * Breakpoints sit at the middle of each hour with TrafficManager's expected multiplier and are
+ * interpolated in between (wrapping at midnight); runs of equal cost collapse to their end points,
+ * and all profiles share three flat primitive arrays
+ */
+import java.util.Arrays;
+class TrafficProfiles {
+    public static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final CompactGraph graph;
+    private final String transportMode;
+    private final int[] offsets;   // breakpoints of arc a are [offsets[a], offsets[a + 1])
+    private final float[] minutes; // minute of day, ascending within an arc
+    private final float[] costs;   // travel time in minutes when entering the arc at that minute
+    private final double[] lowerBounds;
+
+    private TrafficProfiles(CompactGraph graph, String transportMode, int[] offsets, float[] minutes,
+                            float[] costs, double[] lowerBounds) {
+        this.graph = graph;
+        this.transportMode = transportMode;
+        this.offsets = offsets;
+        this.minutes = minutes;
+        this.costs = costs;
+        this.lowerBounds = lowerBounds;
+    }
+
+    /**
+     * Profiles for a snapshot's arcs; closed arcs stay closed all day
+     * Distance costs do not vary with traffic and get constant profiles
+     */
+    public static TrafficProfiles build(CompactGraph graph, String transportMode, TrafficManager traffic) {
+        int arcCount = graph.getArcCount();
+        double[] weights = graph.weights(transportMode);
+        double[] hourly = new double[24];
+        for (int hour = 0; hour < 24; hour++) {
+            hourly[hour] = transportMode.equals("distance") ? 1.0 : traffic.getHourlyMultiplier(hour);
+        }
+
+        int[] offsets = new int[arcCount + 1];
+        float[] minutes = new float[arcCount * 24];
+        float[] costs = new float[arcCount * 24];
+        double[] lowerBounds = new double[arcCount];
+        float[] scratch = new float[24];
+        int size = 0;
+        for (int arc = 0; arc < arcCount; arc++) {
+            double base = baseCost(graph.getEdge(arc), transportMode);
+            if (weights[arc] == Double.POSITIVE_INFINITY) {
+                minutes[size] = 0f;
+                costs[size++] = Float.POSITIVE_INFINITY;
+                lowerBounds[arc] = Double.POSITIVE_INFINITY;
+                offsets[arc + 1] = size;
+                continue;
+            }
+
+            for (int hour = 0; hour < 24; hour++) scratch[hour] = (float) (base * hourly[hour]);
+            enforceFifo(scratch);
+
+            // Keep a breakpoint only where the slope changes
+            double lowest = Double.POSITIVE_INFINITY;
+            for (int hour = 0; hour < 24; hour++) {
+                lowest = Math.min(lowest, scratch[hour]);
+                float previous = scratch[(hour + 23) % 24];
+                float next = scratch[(hour + 1) % 24];
+                if (scratch[hour] - previous != next - scratch[hour]) {
+                    minutes[size] = hour * 60 + 30;
+                    costs[size++] = scratch[hour];
+                }
+            }
+            if (size == offsets[arc]) { // constant all day
+                minutes[size] = 0f;
+                costs[size++] = scratch[0];
+            }
+            lowerBounds[arc] = lowest;
+            offsets[arc + 1] = size;
+        }
+
+        return new TrafficProfiles(graph, transportMode, offsets,
+                Arrays.copyOf(minutes, size), Arrays.copyOf(costs, size), lowerBounds);
+    }
+
+    private static double baseCost(Edge edge, String transportMode) {
+        switch (transportMode) {
+            case "walking": return edge.getBaseWalkingTime();
+            case "driving": return edge.getBaseDrivingTime();
+            default: return edge.getDistance();
+        }
+    }
+
+    /**
+     * FIFO (leaving later never arrives earlier) requires cost to fall by at most one minute per
+     * minute between breakpoints an hour apart; raise any steeper drop so Dijkstra stays exact
+     */
+    private static void enforceFifo(float[] hourlyCosts) {
+        for (int pass = 0; pass < 2; pass++) {
+            for (int hour = 0; hour < 24; hour++) {
+                int next = (hour + 1) % 24;
+                hourlyCosts[next] = Math.max(hourlyCosts[next], hourlyCosts[hour] - 60f);
+            }
+        }
+    }
+
+    public CompactGraph getGraph() { return graph; }
+    public String getTransportMode() { return transportMode; }
+
+    /**
+     * Smallest cost of each arc over the day, for admissible A* bounds
+     */
+    public double[] getLowerBounds() { return lowerBounds; }
+
+    public int getBreakpointCount() { return minutes.length; }
+
+    /**
+     * Travel time of an arc entered at the given minute (any value; taken modulo one day)
+     */
+    public double travelTime(int arc, double minuteOfDay) {
+        int first = offsets[arc];
+        int last = offsets[arc + 1] - 1;
+        if (first == last) return costs[first];
+
+        double t = minuteOfDay % MINUTES_PER_DAY;
+        if (t < 0) t += MINUTES_PER_DAY;
+        if (t < minutes[first] || t >= minutes[last]) {
+            // Segment that wraps past midnight
+            double start = minutes[last];
+            double span = minutes[first] + MINUTES_PER_DAY - start;
+            double offset = t >= start ? t - start : t + MINUTES_PER_DAY - start;
+            return costs[last] + (costs[first] - costs[last]) * offset / span;
+        }
+
+        int lo = first;
+        int hi = last;
+        while (hi - lo > 1) { // minutes[lo] <= t < minutes[hi]
+            int mid = (lo + hi) >>> 1;
+            if (minutes[mid] <= t) lo = mid; else hi = mid;
+        }
+        return costs[lo] + (costs[hi] - costs[lo]) * (t - minutes[lo]) / (minutes[hi] - minutes[lo]);
+    }
+}
@@ -9,6 +9,7 @@ import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
@@ -760,18 +761,23 @@ public class UGNavigateApplication extends JFrame {
                 }
             }
 
-            // Build ordered list: source, landmarks..., destination
-            List<Location> routePoints = new ArrayList<>();
-            routePoints.add(sourceLoc);
-            routePoints.addAll(landmarkLocs);
-            routePoints.add(destLoc);
+            List<String> stopIds = new ArrayList<>();
+            for (Location lm : landmarkLocs) stopIds.add(lm.getId());
+            String transportMode = (String) transportModeComboBox.getSelectedItem();
 
             updateStatus("🗺️ Finding routes from " + sourceLoc.getName() +
                     " ("+sourceLoc.getId()+") to " + destLoc.getName()+" ("+destLoc.getId()+")");
 
-            SwingWorker<Void, Void> worker = new SwingWorker<Void, Void>() {
+            SwingWorker<TourOptimizer.Tour, Void> worker = new SwingWorker<TourOptimizer.Tour, Void>() {
                 @Override
-                protected Void doInBackground() throws Exception {
+                protected TourOptimizer.Tour doInBackground() throws Exception {
+                    // Landmarks: visit them in the quickest order and show the stitched campus route
+                    if (!stopIds.isEmpty()) {
+                        TourOptimizer.Tour tour = routingEngine.planTour(sourceLoc.getId(), stopIds,
+                                destLoc.getId(), transportMode);
+                        if (tour != null) return tour; // otherwise fall back to the direct route
+                    }
+
                     // Fetch route details from OSRM
                     JSONObject routeDetails = OSMRouteFetcher.fetchRouteDetails(
                         sourceLoc.getLatitude(), sourceLoc.getLongitude(),
@@ -845,6 +851,12 @@ public class UGNavigateApplication extends JFrame {
                 }
                 @Override
                 protected void done() {
+                    try {
+                        TourOptimizer.Tour tour = get();
+                        if (tour != null) displayTour(tour);
+                    } catch (Exception ex) {
+                        handleError("Error calculating routes", ex);
+                    }
                         findRoutesButton.setEnabled(true);
                         progressBar.setIndeterminate(false);
                     progressBar.setString("Ready - UG Campus Navigation System");
@@ -859,6 +871,17 @@ public class UGNavigateApplication extends JFrame {
         }
     }
 
+    private void displayTour(TourOptimizer.Tour tour) {
+        StringBuilder order = new StringBuilder("Tour order: ");
+        List<Location> stops = tour.getStops();
+        for (int i = 0; i < stops.size(); i++) {
+            order.append(stops.get(i).getName());
+            if (i < stops.size() - 1) order.append(" → ");
+        }
+        if (!tour.isOptimal()) order.append(" (best found within the time budget)");
+        displayResults(new RouteResult(Collections.singletonList(tour.getRoute()), order.toString()));
+    }
+
     private void displayResults(RouteResult result) {
         if (result.hasRoutes()) {
             StringBuilder formattedResult = new StringBuilder();
@@ -1055,7 +1078,10 @@ public class UGNavigateApplication extends JFrame {
         statsText.append("=" .repeat(50)).append("\n");
         statsText.append("📍 Total Locations: ").append(stats.getTotalLocations()).append("\n");
         statsText.append("🛣️ Total Connections: ").append(stats.getTotalConnections()).append("\n");
-        statsText.append("💾 Cached Routes: ").append(stats.getCachedRoutes()).append("\n\n");
+        statsText.append("💾 Cached Routes: ").append(stats.getCachedRoutes())
+                .append(" (").append(stats.getCacheHits()).append(" hits, ")
+                .append(stats.getCacheMisses()).append(" misses, ")
+                .append(stats.getCacheEvictions()).append(" evictions)\n\n");
 
         statsText.append("📚 CAMPUS LOCATIONS BY CATEGORY\n");
         statsText.append("-".repeat(35)).append("\n");
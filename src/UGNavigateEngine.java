@@ -9,18 +9,27 @@ import java.util.stream.Collectors;
  * Implements Divide and Conquer, Greedy, and Dynamic Programming strategies
  */
 public class UGNavigateEngine {
+    private static final int ROUTE_CACHE_SIZE = 1_000;
+    private static final long ROUTE_CACHE_BYTES = 8L << 20;
+    private static final long ROUTE_CACHE_TTL_MILLIS = 10 * 60 * 1000;
 
     private CampusGraph campusGraph;
     private LandmarkSearch.LandmarkSearchEngine searchEngine;
     private FloydWarshallPathfinder.AllPairsResult precomputedPaths;
-    private ExecutorService threadPool;
-    private Map<String, List<Route>> routeCache; // Dynamic Programming cache
+    private final EngineExecutors executors;
+    private ExecutorService threadPool; // search tasks only; requests run on executors.requests()
+    private RouteCache routeCache; // Dynamic Programming cache
     private TrafficManager trafficManager;
 
     public UGNavigateEngine() {
+        this(EngineExecutors.fromSystemProperty(4)); // For parallel processing
+    }
+
+    public UGNavigateEngine(EngineExecutors executors) {
         this.campusGraph = new CampusGraph();
-        this.threadPool = Executors.newFixedThreadPool(4); // For parallel processing
-        this.routeCache = new ConcurrentHashMap<>();
+        this.executors = executors;
+        this.threadPool = executors.searches();
+        this.routeCache = new RouteCache(ROUTE_CACHE_SIZE, ROUTE_CACHE_BYTES, ROUTE_CACHE_TTL_MILLIS);
         this.trafficManager = new TrafficManager();
         initializeCampusData();
         this.searchEngine = new LandmarkSearch.LandmarkSearchEngine(campusGraph);
@@ -30,6 +39,15 @@ public class UGNavigateEngine {
         return campusGraph;
     }
 
+    /**
+     * findOptimalRoutes on the request executor, so callers need not block a thread of their own
+     */
+    public CompletableFuture<RouteResult> findOptimalRoutesAsync(String sourceId, String destinationId,
+                                                                 RoutePreferences preferences) {
+        return CompletableFuture.supplyAsync(() -> findOptimalRoutes(sourceId, destinationId, preferences),
+                executors.requests());
+    }
+
     /**
      * Main route finding method with multiple optimization strategies
      */
@@ -45,12 +63,16 @@ public class UGNavigateEngine {
 
         // Check cache first (Dynamic Programming optimization)
         String cacheKey = generateCacheKey(sourceId, destinationId, preferences);
-        if (routeCache.containsKey(cacheKey)) {
-            return new RouteResult(routeCache.get(cacheKey), "Routes found (cached)");
+        List<Route> cachedRoutes = routeCache.get(cacheKey);
+        if (cachedRoutes != null) {
+            return new RouteResult(cachedRoutes, "Routes found (cached)");
         }
 
-        // Update traffic conditions in real-time
+        // Update traffic conditions in real-time; cached routes over newly closed roads are evicted
         trafficManager.updateTrafficConditions(campusGraph);
+        CompactGraph snapshot = campusGraph.snapshot();
+        routeCache.applyConditions(snapshot);
+        long cacheStamp = routeCache.getStamp();
 
         List<Route> allRoutes = new ArrayList<>();
 
@@ -111,7 +133,7 @@ public class UGNavigateEngine {
         allRoutes = allRoutes.stream().limit(preferences.maxRoutes).collect(Collectors.toList());
 
         // Cache results (Dynamic Programming)
-        routeCache.put(cacheKey, allRoutes);
+        routeCache.put(cacheKey, allRoutes, cacheStamp, snapshot);
 
         long duration = System.currentTimeMillis() - startedAt;
         return new RouteResult(allRoutes, "Routes found successfully", duration, startedAt);
@@ -373,14 +395,7 @@ public class UGNavigateEngine {
      * Shutdown the engine and cleanup resources
      */
     public void shutdown() {
-        threadPool.shutdown();
-        try {
-            if (!threadPool.awaitTermination(5, TimeUnit.SECONDS)) {
-                threadPool.shutdownNow();
-            }
-        } catch (InterruptedException e) {
-            threadPool.shutdownNow();
-        }
+        executors.shutdown(5_000);
     }
 }
 
@@ -1,40 +1,109 @@
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.time.LocalDateTime;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Enhanced UG Navigate Engine with Real University of Ghana Campus Data
  * Implements advanced algorithms with authentic UG locations, buildings, and streets
  */
 public class UGNavigateEngineEnhanced {
+    private static final long ROUTE_BUDGET_MILLIS = 8000; // whole fan-out of one findOptimalRoutes call
+    private static final int ROUTE_CACHE_SIZE = 2_000;
+    private static final long ROUTE_CACHE_BYTES = 16L << 20;
+    private static final long ROUTE_CACHE_TTL_MILLIS = 10 * 60 * 1000;
+    private static final long TOUR_BUDGET_MILLIS = 200; // local search for tours past Held-Karp size
+    public static final String REFRESH_PROPERTY = "ugnavigate.conditions.refreshMillis";
+    private static final long DEFAULT_REFRESH_MILLIS = 30_000; // background traffic/closure refresh cadence
 
     CampusGraph campusGraph;
     private LandmarkSearch.LandmarkSearchEngine searchEngine;
-    private FloydWarshallPathfinder.AllPairsResult precomputedPaths;
-    private ExecutorService threadPool;
-    private Map<String, List<Route>> routeCache; // Dynamic Programming cache
+    private final EngineExecutors executors;
+    private ExecutorService threadPool; // search tasks only; requests run on executors.requests()
+    private RouteCache routeCache; // Dynamic Programming cache
+    private final Map<String, CompletableFuture<RouteResult>> inFlight = new ConcurrentHashMap<>(); // by cache key
+    private final AtomicLong coalescedRequests = new AtomicLong();
+    private final AtomicLong routeComputations = new AtomicLong();
     private TrafficManager trafficManager;
+    private final Random conditionsRandom = new Random();
+    private final Set<Integer> closedRoads = new HashSet<>(); // arcs closed by setRoadClosure; guarded by this
+    private ScheduledFuture<?> conditionsRefresh;
     private Map<String, double[]> campusCoordinates;
     private List<String> campusStreets;
+    // Conditions as last published: writers swap in a whole new version, readers pin one per query
+    private final AtomicReference<Conditions> conditions = new AtomicReference<>();
+    private volatile RoutingOverlay routingOverlay; // partition only; survives traffic updates
 
     public UGNavigateEngineEnhanced() {
+        this(EngineExecutors.fromSystemProperty(6)); // Increased for larger dataset
+    }
+
+    public UGNavigateEngineEnhanced(EngineExecutors executors) {
+        this(executors, Long.getLong(REFRESH_PROPERTY, DEFAULT_REFRESH_MILLIS));
+    }
+
+    /**
+     * refreshMillis is the cadence of the background conditions refresh; 0 disables it, so
+     * conditions only change through refreshConditions or setRoadClosure
+     */
+    public UGNavigateEngineEnhanced(EngineExecutors executors, long refreshMillis) {
         this.campusGraph = new CampusGraph();
-        this.threadPool = Executors.newFixedThreadPool(6); // Increased for larger dataset
-        this.routeCache = new ConcurrentHashMap<>();
+        this.executors = executors;
+        this.threadPool = executors.searches();
+        this.routeCache = new RouteCache(ROUTE_CACHE_SIZE, ROUTE_CACHE_BYTES, ROUTE_CACHE_TTL_MILLIS);
         this.trafficManager = new TrafficManager();
 
         // Initialize with real UG campus data
         initializeEnhancedUGCampusData();
 
-        this.searchEngine = new LandmarkSearch.LandmarkSearchEngine(campusGraph);
+        this.searchEngine = new LandmarkSearch.LandmarkSearchEngine(campusGraph, executors.parallel());
         this.campusCoordinates = UGCampusDataEnhanced.getLocationCoordinates();
         this.campusStreets = UGCampusDataEnhanced.getCampusStreets();
 
+        // Queries only read published conditions; they never pay for the O(E) update themselves
+        updateCampusConditions();
+        setConditionsRefresh(refreshMillis);
+
         System.out.println("🎓 UG Navigate Engine Enhanced - Real Campus Data Loaded");
         printCampusStats();
     }
 
+    /**
+     * Reschedule the background conditions refresh every periodMillis; 0 stops it
+     */
+    public synchronized void setConditionsRefresh(long periodMillis) {
+        if (conditionsRefresh != null) conditionsRefresh.cancel(false);
+        conditionsRefresh = null;
+        if (periodMillis <= 0) return;
+        conditionsRefresh = executors.scheduler().scheduleWithFixedDelay(() -> {
+            try {
+                updateCampusConditions();
+            } catch (RuntimeException e) {
+                System.err.println("⚠️ Conditions refresh failed: " + e.getMessage()); // keep the schedule alive
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Refresh traffic and closures now, on the calling thread
+     */
+    public void refreshConditions() {
+        updateCampusConditions();
+    }
+
+    /**
+     * findOptimalRoutes on the request executor; with virtual threads, waiting for the search
+     * fan-out costs no platform thread, so many requests can be in flight at once
+     */
+    public CompletableFuture<RouteResult> findOptimalRoutesAsync(String sourceId, String destinationId,
+                                                                 RoutePreferences preferences) {
+        return CompletableFuture.supplyAsync(() -> findOptimalRoutes(sourceId, destinationId, preferences),
+                executors.requests());
+    }
+
     /**
      * Enhanced route finding with real campus optimizations
      */
@@ -50,65 +119,208 @@ public class UGNavigateEngineEnhanced {
 
         // Enhanced cache key with campus-specific factors
         String cacheKey = generateEnhancedCacheKey(sourceId, destinationId, preferences);
-        if (routeCache.containsKey(cacheKey)) {
-            List<Route> cachedRoutes = routeCache.get(cacheKey);
+        List<Route> cachedRoutes = routeCache.get(cacheKey);
+        if (cachedRoutes != null) {
             return new RouteResult(cachedRoutes,
                     String.format("Routes found (cached) - %d options available", cachedRoutes.size()));
         }
 
-        // Real-time campus conditions update
-        updateCampusConditions();
+        // Single flight: identical concurrent misses wait for one computation instead of each fanning out
+        CompletableFuture<RouteResult> flight = new CompletableFuture<>();
+        CompletableFuture<RouteResult> leader = inFlight.putIfAbsent(cacheKey, flight);
+        if (leader != null) {
+            coalescedRequests.incrementAndGet();
+            RouteResult shared = leader.join();
+            return new RouteResult(shared.getRoutes(), shared.getMessage(),
+                    System.currentTimeMillis() - startedAt, startedAt);
+        }
+        try {
+            // The previous leader may have cached its answer between our miss and winning the slot
+            List<Route> justCached = routeCache.peek(cacheKey);
+            if (justCached != null) {
+                RouteResult result = new RouteResult(justCached,
+                        String.format("Routes found (cached) - %d options available", justCached.size()));
+                flight.complete(result);
+                return result;
+            }
+            routeComputations.incrementAndGet();
+            RouteResult result = computeRoutes(cacheKey, source, destination, preferences, startedAt);
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(cacheKey, flight);
+        }
+    }
+
+    /**
+     * One published version of the conditions: the routing snapshot and the all-pairs table
+     * repaired for it, swapped in together so no query sees one without the other.
+     * Metric-dependent preprocessing is memoized per version and mode, so after a publish the
+     * first query builds it once and concurrent queries wait for that build instead of repeating it
+     */
+    private static class Conditions {
+        final CompactGraph snapshot;
+        final FloydWarshallPathfinder.AllPairsResult allPairs; // null when precomputation failed
+        final Map<String, LandmarkHeuristic> landmarkHeuristics = new ConcurrentHashMap<>();
+        final Map<String, ContractionHierarchy> contractionHierarchies = new ConcurrentHashMap<>();
+        final Map<String, RoutingOverlay.Metric> overlayMetrics = new ConcurrentHashMap<>();
+        final Map<String, HubLabelIndex> distanceOracles = new ConcurrentHashMap<>();
+        final Map<String, TrafficProfiles> trafficProfiles = new ConcurrentHashMap<>();
+
+        Conditions(CompactGraph snapshot, FloydWarshallPathfinder.AllPairsResult allPairs) {
+            this.snapshot = snapshot;
+            this.allPairs = allPairs;
+        }
+    }
+
+    /**
+     * Cache stamp and published conditions a query works from
+     */
+    static class Pin {
+        final long cacheStamp;
+        final CompactGraph snapshot;
+        final FloydWarshallPathfinder.AllPairsResult allPairs;
+        private final Conditions conditions;
+
+        private Pin(long cacheStamp, Conditions conditions) {
+            this.cacheStamp = cacheStamp;
+            this.conditions = conditions;
+            this.snapshot = conditions.snapshot;
+            this.allPairs = conditions.allPairs;
+        }
+    }
+
+    /**
+     * Stamp first, then snapshot: publishConditions invalidates the cache before it swaps the snapshot,
+     * so a publish in between can only make the stamp older than the snapshot (results get dropped),
+     * never pair an old snapshot with a stamp that already covers a road it still routes over
+     * betweenReads runs between the two reads, so tests can interleave a publish there
+     */
+    Pin pinConditions(Runnable betweenReads) {
+        long cacheStamp = routeCache.getStamp();
+        betweenReads.run();
+        return new Pin(cacheStamp, conditions.get());
+    }
+
+    RouteCache getRouteCache() {
+        return routeCache;
+    }
+
+    /**
+     * Requests that joined an identical in-flight computation instead of starting their own
+     */
+    long getCoalescedRequestCount() {
+        return coalescedRequests.get();
+    }
+
+    /**
+     * Cache misses that actually ran the route strategies
+     */
+    long getRouteComputationCount() {
+        return routeComputations.get();
+    }
+
+    /**
+     * Cache miss path: refresh conditions, run every strategy within the query budget, cache the result
+     */
+    private RouteResult computeRoutes(String cacheKey, Location source, Location destination,
+                                      RoutePreferences preferences, long startedAt) {
+        // Conditions are refreshed in the background; the whole fan-out of this query reads one
+        // pinned snapshot, so every strategy sees the same weights whatever is published meanwhile
+        Pin pin = pinConditions(() -> {});
+        CompactGraph snapshot = pin.snapshot;
+        long cacheStamp = pin.cacheStamp; // results are only cached if their roads were not invalidated meanwhile
 
         List<Route> allRoutes = new ArrayList<>();
+        // One token for every search of this query, so they are all cancelled together
+        SearchDeadline deadline = SearchDeadline.after(ROUTE_BUDGET_MILLIS);
+        List<CompletableFuture<List<Route>>> futures = new ArrayList<>();
+        CompletableFuture<List<Route>> primary;
+        boolean refining = false;
 
         try {
             // Parallel algorithm execution for enhanced performance
-            List<Future<List<Route>>> futures = new ArrayList<>();
-
             // Primary algorithms
-            futures.add(threadPool.submit(() ->
-                    DijkstraPathfinder.findMultiplePaths(campusGraph, source, destination,
-                            preferences.transportMode, 4))); // Increased paths for larger campus
-
-            futures.add(threadPool.submit(() -> {
-                Route aStarRoute = AStarPathfinder.findOptimalPath(campusGraph, source,
-                        destination, preferences.transportMode);
-                return aStarRoute != null ? Arrays.asList(aStarRoute) : new ArrayList<Route>();
-            }));
+            futures.add(CompletableFuture.supplyAsync(() ->
+                    DijkstraPathfinder.findMultiplePaths(snapshot, source, destination, preferences.transportMode,
+                            4, executors.parallel(), deadline), threadPool)); // Increased paths for larger campus
+
+            primary = CompletableFuture.supplyAsync(() -> {
+                Route primaryRoute = findPrimaryRoute(pin.conditions, source, destination, preferences, deadline);
+                return primaryRoute != null ? Arrays.asList(primaryRoute) : new ArrayList<Route>();
+            }, threadPool);
+            futures.add(primary);
+
+            // Trade-off routes the single-criterion searches can miss
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                List<Route> front = new ArrayList<>();
+                for (ParetoPathfinder.ParetoRoute option : ParetoPathfinder.findParetoRoutes(snapshot,
+                        source, destination, preferences.transportMode, ParetoPathfinder.DEFAULT_MAX_LABELS_PER_NODE,
+                        deadline, "time", "safety", "accessibility")) {
+                    front.add(option.getRoute());
+                }
+                return front;
+            }, threadPool));
 
             // Campus-specific route finding
             if (preferences.landmarks != null && preferences.landmarks.length > 0) {
-                futures.add(threadPool.submit(() ->
-                        searchEngine.findRoutesWithLandmarks(source, destination,
-                                preferences.transportMode, preferences.landmarks)));
+                futures.add(CompletableFuture.supplyAsync(() ->
+                        searchEngine.findRoutesWithLandmarks(snapshot, source, destination,
+                                preferences.transportMode, deadline, preferences.landmarks), threadPool));
             }
 
             // Hall-specific routing (for residential areas)
             if (isResidentialArea(source) || isResidentialArea(destination)) {
-                futures.add(threadPool.submit(() ->
-                        findResidentialRoutes(source, destination, preferences.transportMode)));
+                futures.add(CompletableFuture.supplyAsync(() ->
+                        findResidentialRoutes(snapshot, source, destination, preferences.transportMode, deadline),
+                        threadPool));
             }
 
             // Academic building optimized routes
             if (isAcademicBuilding(source) || isAcademicBuilding(destination)) {
-                futures.add(threadPool.submit(() ->
-                        findAcademicRoutes(source, destination, preferences.transportMode)));
+                futures.add(CompletableFuture.supplyAsync(() ->
+                        findAcademicRoutes(snapshot, source, destination, preferences.transportMode, deadline),
+                        threadPool));
             }
 
             // Service facility routes (bank, hospital, etc.)
             if (isServiceFacility(source) || isServiceFacility(destination)) {
-                futures.add(threadPool.submit(() ->
-                        findServiceRoutes(source, destination, preferences.transportMode)));
+                futures.add(CompletableFuture.supplyAsync(() ->
+                        findServiceRoutes(snapshot, source, destination, preferences.transportMode, deadline),
+                        threadPool));
             }
 
-            // Collect results with timeout
-            for (Future<List<Route>> future : futures) {
+            if (preferences.latencyBudgetMillis > 0) {
+                // Latency SLO: answer with the primary route (or whatever is done when the budget hits)
+                // and let the other strategies refine the cache entry in the background
                 try {
-                    List<Route> routes = future.get(8, TimeUnit.SECONDS); // Increased timeout
-                    allRoutes.addAll(routes);
-                } catch (TimeoutException e) {
-                    future.cancel(true);
-                    System.err.println("⚠️ Route calculation timed out for one algorithm");
+                    primary.get(Math.min(preferences.latencyBudgetMillis, deadline.remainingMillis()),
+                            TimeUnit.MILLISECONDS);
+                } catch (TimeoutException | ExecutionException e) {
+                    // answer with whatever else has finished
+                }
+                collectFinished(futures, allRoutes);
+                refining = futures.stream().anyMatch(future -> !future.isDone());
+                if (refining) {
+                    refineInBackground(futures, deadline, cacheKey, pin, source, destination, preferences);
+                }
+            } else {
+                // Collect results within the query's budget
+                for (int i = 0; i < futures.size(); i++) {
+                    try {
+                        allRoutes.addAll(futures.get(i).get(deadline.remainingMillis(), TimeUnit.MILLISECONDS));
+                    } catch (TimeoutException e) {
+                        System.err.println("⚠️ Route calculation budget exhausted; cancelling remaining algorithms");
+                        // later strategies may already have finished; keep their routes
+                        collectFinished(futures.subList(i + 1, futures.size()), allRoutes);
+                        break;
+                    } catch (ExecutionException e) {
+                        if (!(e.getCause() instanceof CancellationException)) throw e;
+                        System.err.println("⚠️ Route calculation timed out for one algorithm");
+                    }
                 }
             }
 
@@ -116,12 +328,67 @@ public class UGNavigateEngineEnhanced {
             e.printStackTrace();
             return new RouteResult(new ArrayList<>(),
                     "Error calculating routes: " + e.getMessage());
+        } finally {
+            if (!refining) {
+                // Stop whatever is still running so its pool threads are free for the next request
+                deadline.cancel();
+                for (Future<List<Route>> future : futures) future.cancel(true);
+            }
         }
 
-        // Add precomputed path as a fast fallback if available and not already included
+        allRoutes = finishRoutes(allRoutes, pin, source, destination, preferences);
+
+        // Cache with TTL for campus conditions; an empty early answer is left for the refinement to fill
+        if (!(refining && allRoutes.isEmpty())) {
+            routeCache.put(cacheKey, allRoutes, cacheStamp, snapshot);
+        }
+
+        String message = String.format("Routes found successfully from %s to %s",
+                source.getName(), destination.getName());
+        if (refining) message += " (refining in background)";
+
+        long duration = System.currentTimeMillis() - startedAt;
+        return new RouteResult(allRoutes, message, duration, startedAt);
+    }
+
+    /**
+     * Routes of every future that has already completed normally
+     */
+    private static void collectFinished(List<CompletableFuture<List<Route>>> futures, List<Route> out) {
+        for (CompletableFuture<List<Route>> future : futures) {
+            if (future.isDone() && !future.isCompletedExceptionally()) out.addAll(future.join());
+        }
+    }
+
+    /**
+     * Once every strategy has finished (or the query budget is spent), rebuild the cache entry
+     * from all candidates; runs on the thread that completes the last future, so nothing blocks
+     */
+    private void refineInBackground(List<CompletableFuture<List<Route>>> futures, SearchDeadline deadline,
+                                    String cacheKey, Pin pin, Location source, Location destination,
+                                    RoutePreferences preferences) {
+        CompletableFuture.allOf(futures.toArray(CompletableFuture<?>[]::new))
+                .orTimeout(deadline.remainingMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((done, error) -> {
+                    deadline.cancel(); // stragglers stop at their next check
+                    List<Route> candidates = new ArrayList<>();
+                    collectFinished(futures, candidates);
+                    routeCache.put(cacheKey, finishRoutes(candidates, pin, source, destination, preferences),
+                            pin.cacheStamp, pin.snapshot);
+                });
+    }
+
+    /**
+     * Shared post-processing: precomputed fallback, de-duplication, scoring, filters, sorting, limit
+     */
+    private List<Route> finishRoutes(List<Route> allRoutes, Pin pin, Location source, Location destination,
+                                     RoutePreferences preferences) {
+        // Add precomputed path as a fast fallback if available and not already included;
+        // the table is the one published with the query's pinned snapshot
         try {
-            if (precomputedPaths != null) {
-                Route fwRoute = precomputedPaths.getPath(source, destination, preferences.transportMode, campusGraph);
+            FloydWarshallPathfinder.AllPairsResult table = pin.allPairs;
+            if (table != null) {
+                Route fwRoute = table.getPath(source, destination, preferences.transportMode, campusGraph);
                 if (fwRoute != null) {
                     allRoutes.add(fwRoute);
                 }
@@ -143,17 +410,81 @@ public class UGNavigateEngineEnhanced {
         // Limit results
         allRoutes = allRoutes.stream().limit(preferences.maxRoutes).collect(Collectors.toList());
 
-        // Enhanced route information
-        enhanceRoutesWithCampusInfo(allRoutes);
+        // Enhanced route information, on copies: the candidates may already have been handed out
+        // by an early answer while the background refinement finishes them again
+        return enhanceRoutesWithCampusInfo(allRoutes);
+    }
 
-        // Cache with TTL for campus conditions
-        routeCache.put(cacheKey, allRoutes);
+    /**
+     * Primary single-route search with the algorithm selected in the preferences
+     */
+    private Route findPrimaryRoute(Conditions published, Location source, Location destination,
+                                   RoutePreferences preferences, SearchDeadline deadline) {
+        CompactGraph snapshot = published.snapshot;
+        String mode = preferences.transportMode;
+        switch (preferences.searchAlgorithm) {
+            case "dijkstra":
+                return DijkstraPathfinder.findShortestPathIndexed(snapshot, source, destination, mode, deadline);
+            case "bidirectional":
+                return BidirectionalPathfinder.findPath(snapshot, source, destination, mode,
+                        (SearchHeuristic) null, backwardExecutor(preferences), deadline);
+            case "ch":
+                return contractionHierarchyFor(published, mode).findShortestPath(source, destination, deadline);
+            case "crp":
+                return overlayMetricFor(published, mode).findShortestPath(source, destination, deadline);
+            case "bidirectional-astar": {
+                LandmarkHeuristic landmarks = landmarkHeuristicFor(published, mode);
+                return BidirectionalPathfinder.findPath(landmarks.getGraph(), source, destination, mode,
+                        landmarks, backwardExecutor(preferences), deadline);
+            }
+            default: {
+                LandmarkHeuristic landmarks = landmarkHeuristicFor(published, mode);
+                return AStarPathfinder.findOptimalPath(landmarks.getGraph(), source, destination, mode, landmarks,
+                        deadline);
+            }
+        }
+    }
 
-        String message = String.format("Routes found successfully from %s to %s",
-                source.getName(), destination.getName());
+    /**
+     * Contraction hierarchy for a published version, built once on first use
+     */
+    private ContractionHierarchy contractionHierarchyFor(Conditions published, String mode) {
+        return published.contractionHierarchies.computeIfAbsent(mode,
+                m -> ContractionHierarchy.build(published.snapshot, m));
+    }
 
-        long duration = System.currentTimeMillis() - startedAt;
-        return new RouteResult(allRoutes, message, duration, startedAt);
+    /**
+     * CRP overlay metric for a published version; a traffic change only re-runs customization
+     */
+    private RoutingOverlay.Metric overlayMetricFor(Conditions published, String mode) {
+        return published.overlayMetrics.computeIfAbsent(mode,
+                m -> overlayFor(published.snapshot).customize(published.snapshot, m, executors.parallel()));
+    }
+
+    private synchronized RoutingOverlay overlayFor(CompactGraph snapshot) {
+        RoutingOverlay overlay = routingOverlay;
+        if (overlay == null || !overlay.getTopology().sharesTopologyWith(snapshot)) {
+            overlay = RoutingOverlay.build(snapshot, RoutingOverlay.DEFAULT_CELL_SIZE);
+            routingOverlay = overlay;
+        }
+        return overlay;
+    }
+
+    private Executor backwardExecutor(RoutePreferences preferences) {
+        return preferences.parallelSearch ? executors.parallel() : null;
+    }
+
+    /**
+     * ALT landmarks for a published version, built once after each traffic change
+     * The heuristic carries the snapshot it was computed on so searches use matching weights
+     */
+    private LandmarkHeuristic landmarkHeuristicFor(Conditions published, String mode) {
+        return published.landmarkHeuristics.computeIfAbsent(mode,
+                m -> LandmarkHeuristic.build(published.snapshot, m, LandmarkHeuristic.DEFAULT_LANDMARK_COUNT));
+    }
+
+    LandmarkHeuristic landmarkHeuristicFor(String mode) {
+        return landmarkHeuristicFor(conditions.get(), mode);
     }
 
     /**
@@ -318,14 +649,15 @@ public class UGNavigateEngineEnhanced {
     /**
      * Specialized route finding methods
      */
-    private List<Route> findResidentialRoutes(Location source, Location destination, String transportMode) {
+    private List<Route> findResidentialRoutes(CompactGraph snapshot, Location source, Location destination, String transportMode,
+                                              SearchDeadline deadline) {
         // Find routes that prioritize hall connections and night market access
         List<Route> residentialRoutes = new ArrayList<>();
 
         // Try route through University Square (central hub)
         Location universitySquare = campusGraph.getLocationById("SQUARE001");
         if (universitySquare != null) {
-            Route viaSquare = findRouteViaIntermediate(source, universitySquare, destination, transportMode);
+            Route viaSquare = findRouteViaIntermediate(snapshot, source, universitySquare, destination, transportMode, deadline);
             if (viaSquare != null) {
                 viaSquare.addLandmark("central hub");
                 residentialRoutes.add(viaSquare);
@@ -335,7 +667,7 @@ public class UGNavigateEngineEnhanced {
         // Try route through food court for dining access
         Location foodCourt = campusGraph.getLocationById("FOOD001");
         if (foodCourt != null) {
-            Route viaFoodCourt = findRouteViaIntermediate(source, foodCourt, destination, transportMode);
+            Route viaFoodCourt = findRouteViaIntermediate(snapshot, source, foodCourt, destination, transportMode, deadline);
             if (viaFoodCourt != null) {
                 viaFoodCourt.addLandmark("food court access");
                 residentialRoutes.add(viaFoodCourt);
@@ -345,13 +677,14 @@ public class UGNavigateEngineEnhanced {
         return residentialRoutes;
     }
 
-    private List<Route> findAcademicRoutes(Location source, Location destination, String transportMode) {
+    private List<Route> findAcademicRoutes(CompactGraph snapshot, Location source, Location destination, String transportMode,
+                                           SearchDeadline deadline) {
         List<Route> academicRoutes = new ArrayList<>();
 
         // Route via Balme Library (academic hub)
         Location balmeLibrary = campusGraph.getLocationById("LIB001");
         if (balmeLibrary != null) {
-            Route viaLibrary = findRouteViaIntermediate(source, balmeLibrary, destination, transportMode);
+            Route viaLibrary = findRouteViaIntermediate(snapshot, source, balmeLibrary, destination, transportMode, deadline);
             if (viaLibrary != null) {
                 viaLibrary.addLandmark("library access");
                 academicRoutes.add(viaLibrary);
@@ -361,13 +694,14 @@ public class UGNavigateEngineEnhanced {
         return academicRoutes;
     }
 
-    private List<Route> findServiceRoutes(Location source, Location destination, String transportMode) {
+    private List<Route> findServiceRoutes(CompactGraph snapshot, Location source, Location destination, String transportMode,
+                                          SearchDeadline deadline) {
         List<Route> serviceRoutes = new ArrayList<>();
 
         // Route via GCB Bank for financial services
         Location bank = campusGraph.getLocationById("BANK001");
         if (bank != null) {
-            Route viaBank = findRouteViaIntermediate(source, bank, destination, transportMode);
+            Route viaBank = findRouteViaIntermediate(snapshot, source, bank, destination, transportMode, deadline);
             if (viaBank != null) {
                 viaBank.addLandmark("banking access");
                 serviceRoutes.add(viaBank);
@@ -380,13 +714,16 @@ public class UGNavigateEngineEnhanced {
     /**
      * Helper method to find route via intermediate location
      */
-    private Route findRouteViaIntermediate(Location source, Location intermediate,
-                                           Location destination, String transportMode) {
-        Route toIntermediate = AStarPathfinder.findOptimalPath(campusGraph, source, intermediate, transportMode);
-        Route fromIntermediate = AStarPathfinder.findOptimalPath(campusGraph, intermediate, destination, transportMode);
+    private Route findRouteViaIntermediate(CompactGraph snapshot, Location source, Location intermediate,
+                                           Location destination, String transportMode, SearchDeadline deadline) {
+        SearchHeuristic heuristic = snapshot.geometricHeuristic(transportMode);
+        Route toIntermediate = AStarPathfinder.findOptimalPath(snapshot, source, intermediate, transportMode,
+                heuristic, deadline);
+        Route fromIntermediate = AStarPathfinder.findOptimalPath(snapshot, intermediate, destination, transportMode,
+                heuristic, deadline);
 
         if (toIntermediate != null && fromIntermediate != null) {
-            return combineRoutes(toIntermediate, fromIntermediate, transportMode);
+            return combineRoutes(snapshot, toIntermediate, fromIntermediate, transportMode);
         }
         return null;
     }
@@ -394,16 +731,16 @@ public class UGNavigateEngineEnhanced {
     /**
      * Combine two routes into one
      */
-    private Route combineRoutes(Route route1, Route route2, String transportMode) {
+    private Route combineRoutes(CompactGraph snapshot, Route route1, Route route2, String transportMode) {
         // Build combined list of locations then remove any cycles and rebuild edges
         List<Location> combinedLocs = new ArrayList<>(route1.getPath());
         List<Location> secondPath = route2.getPath();
         for (int i = 1; i < secondPath.size(); i++) combinedLocs.add(secondPath.get(i));
 
-        return buildCleanRoute(combinedLocs, transportMode);
+        return buildCleanRoute(snapshot, combinedLocs, transportMode);
     }
 
-    private Route buildCleanRoute(List<Location> locations, String transportMode) {
+    private Route buildCleanRoute(CompactGraph snapshot, List<Location> locations, String transportMode) {
         // Remove cycles by collapsing repeated nodes
         List<Location> clean = new ArrayList<>();
         Map<String, Integer> indexById = new HashMap<>();
@@ -423,15 +760,16 @@ public class UGNavigateEngineEnhanced {
             }
         }
 
+        // Edges and times from the pinned snapshot, like the legs they came from
         Route r = new Route(transportMode);
-        for (int i = 0; i < clean.size(); i++) {
-            r.addLocation(clean.get(i));
-            if (i < clean.size() - 1) {
-                Edge e = null;
-                for (Edge edge : campusGraph.getNeighbors(clean.get(i))) {
-                    if (edge.getDestination().equals(clean.get(i + 1))) { e = edge; break; }
-                }
-                if (e != null) r.addEdge(e);
+        r.addLocation(clean.get(0));
+        for (int i = 1; i < clean.size(); i++) {
+            int from = snapshot.indexOf(clean.get(i - 1));
+            int arc = snapshot.arcBetween(from, snapshot.indexOf(clean.get(i)));
+            if (arc >= 0) {
+                r.append(snapshot.buildRoute(from, new int[] {arc}, 1, transportMode));
+            } else {
+                r.addLocation(clean.get(i));
             }
         }
         return r;
@@ -539,10 +877,14 @@ public class UGNavigateEngineEnhanced {
     }
 
     /**
-     * Enhance routes with campus-specific information
+     * Copies of the routes annotated with campus-specific information
      */
-    private void enhanceRoutesWithCampusInfo(List<Route> routes) {
-        for (Route route : routes) {
+    private List<Route> enhanceRoutesWithCampusInfo(List<Route> routes) {
+        List<Route> enhanced = new ArrayList<>(routes.size());
+        for (Route candidate : routes) {
+            Route route = candidate.copy();
+            enhanced.add(route);
+
             // Add accessibility information
             boolean isAccessible = checkRouteAccessibility(route);
             if (isAccessible) {
@@ -557,6 +899,7 @@ public class UGNavigateEngineEnhanced {
             String timeRecommendation = getTimeRecommendation(route);
             route.addLandmark(timeRecommendation);
         }
+        return enhanced;
     }
 
     private boolean checkRouteAccessibility(Route route) {
@@ -615,59 +958,90 @@ public class UGNavigateEngineEnhanced {
     }
 
     /**
-     * Update campus conditions (traffic, events, closures)
+     * Update campus conditions (traffic, events, closures) and publish them as a new snapshot
+     * Conditions are computed per arc of the published topology and frozen into the next snapshot;
+     * the shared Edges are never written, so no reader can see a half-applied update.
+     * Serialized with other condition writers; readers see either the old or the new snapshot
      */
-    private void updateCampusConditions() {
-        trafficManager.updateTrafficConditions(campusGraph);
+    private synchronized void updateCampusConditions() {
+        CompactGraph current = conditions.get().snapshot;
+        double[] multipliers = new double[current.getArcCount()];
+        boolean[] closures = new boolean[multipliers.length];
+        trafficManager.simulateConditions(current, multipliers, closures);
 
         // Simulate campus-specific conditions
         LocalDateTime now = LocalDateTime.now();
-        int hour = now.getHour();
         int dayOfWeek = now.getDayOfWeek().getValue(); // 1 = Monday, 7 = Sunday
 
         // Weekend conditions
         if (dayOfWeek >= 6) {
             // Lighter traffic on weekends
-            applyWeekendConditions();
+            applyWeekendConditions(multipliers);
         }
 
         // Exam period simulation (increased library traffic)
         if (isExamPeriod(now)) {
-            increaseLibraryTraffic();
+            increaseLibraryTraffic(current, multipliers);
+        }
+
+        // Event-based closures (graduation, etc.), simulated only when closures are
+        if (isEventDay(now) && trafficManager.isSimulatingClosures()) {
+            applyEventRestrictions(current, closures);
         }
 
-        // Event-based closures (graduation, etc.)
-        if (isEventDay(now)) {
-            applyEventRestrictions();
+        // Roads closed by hand stay closed until reopened by hand
+        for (int arc : closedRoads) closures[arc] = true;
+
+        publishConditions(current.withConditions(multipliers, closures));
+    }
+
+    /**
+     * Publish a new routing snapshot and bring the caches up to date with it
+     */
+    private void publishConditions(CompactGraph snapshot) {
+        // New weights invalidate metric-dependent preprocessing such as ALT landmarks
+        routeCache.applyConditions(snapshot); // evicts only routes over changed roads
+
+        // Repair the all-pairs table for the changed edges instead of letting it go stale
+        FloydWarshallPathfinder.AllPairsResult table = conditions.get().allPairs;
+        if (table != null) {
+            table = AllPairsPathfinder.repair(table, snapshot, executors.parallel());
         }
+        conditions.set(new Conditions(snapshot, table));
+    }
+
+    /**
+     * Routing snapshot as last published
+     */
+    CompactGraph getRoutingSnapshot() {
+        return conditions.get().snapshot;
     }
 
-    private void applyWeekendConditions() {
+    private void applyWeekendConditions(double[] multipliers) {
         // Reduce traffic multipliers on weekends
-        for (Location location : campusGraph.getAllLocations()) {
-            for (Edge edge : campusGraph.getNeighbors(location)) {
-                double currentMultiplier = edge.getTrafficMultiplier();
-                edge.setTrafficMultiplier(currentMultiplier * 0.7); // 30% less traffic
-            }
+        for (int arc = 0; arc < multipliers.length; arc++) {
+            multipliers[arc] *= 0.7; // 30% less traffic
         }
     }
 
-    private void increaseLibraryTraffic() {
-        Location library = campusGraph.getLocationById("LIB001");
-        if (library != null) {
-            for (Edge edge : campusGraph.getNeighbors(library)) {
-                edge.setTrafficMultiplier(edge.getTrafficMultiplier() * 1.5);
+    private void increaseLibraryTraffic(CompactGraph topology, double[] multipliers) {
+        int library = topology.indexOf("LIB001");
+        if (library >= 0) {
+            int[] offsets = topology.getOffsets();
+            for (int arc = offsets[library]; arc < offsets[library + 1]; arc++) {
+                multipliers[arc] *= 1.5;
             }
         }
     }
 
-    private void applyEventRestrictions() {
+    private void applyEventRestrictions(CompactGraph topology, boolean[] closures) {
         // Close some roads near Great Hall during events
-        Location greatHall = campusGraph.getLocationById("GH001");
-        if (greatHall != null) {
-            for (Edge edge : campusGraph.getNeighbors(greatHall)) {
-                if (new Random().nextDouble() < 0.3) { // 30% chance of closure
-                    edge.setClosed(true);
+        int greatHall = topology.indexOf("GH001");
+        if (greatHall >= 0) {
+            int[] offsets = topology.getOffsets();
+            for (int arc = offsets[greatHall]; arc < offsets[greatHall + 1]; arc++) {
+                if (conditionsRandom.nextDouble() < 0.3) { // 30% chance of closure
+                    closures[arc] = true;
                 }
             }
         }
@@ -693,7 +1067,8 @@ public class UGNavigateEngineEnhanced {
         key.append(source).append("|").append(destination).append("|");
         key.append(preferences.transportMode).append("|");
         key.append(preferences.sortCriteria).append("|");
-        key.append(preferences.maxRoutes);
+        key.append(preferences.maxRoutes).append("|");
+        key.append(preferences.searchAlgorithm);
 
         // Add time-based cache key components
         LocalDateTime now = LocalDateTime.now();
@@ -712,13 +1087,17 @@ public class UGNavigateEngineEnhanced {
      */
     private void initializeEnhancedUGCampusData() {
         UGCampusDataEnhanced.initializeRealUGCampusData(campusGraph);
+        CompactGraph snapshot = campusGraph.snapshot();
 
         // Precompute paths for performance
+        FloydWarshallPathfinder.AllPairsResult table = null;
         try {
-            precomputedPaths = FloydWarshallPathfinder.computeAllPairsShortestPaths(campusGraph, "walking");
+            // Dense Floyd-Warshall for small graphs, parallel per-node searches for larger sparse ones
+            table = AllPairsPathfinder.compute(snapshot, "walking", executors.parallel());
         } catch (Exception e) {
             System.err.println("⚠️ Failed to precompute paths: " + e.getMessage());
         }
+        conditions.set(new Conditions(snapshot, table));
     }
 
     /**
@@ -731,6 +1110,117 @@ public class UGNavigateEngineEnhanced {
         System.out.println("📍 Coordinate bounds: NE(5.6540, -0.1860), SW(5.6485, -0.1920)");
     }
 
+    /**
+     * Travel time in minutes between two locations without building a route
+     * Answered from hub labels for the current conditions; infinite when unreachable
+     */
+    public double getTravelTime(String sourceId, String destinationId, String transportMode) {
+        Location source = campusGraph.getLocationById(sourceId);
+        Location destination = campusGraph.getLocationById(destinationId);
+        if (source == null || destination == null) return Double.POSITIVE_INFINITY;
+        return distanceOracleFor(transportMode).distance(source, destination);
+    }
+
+    /**
+     * Travel-time matrix between two sets of location ids (minutes, infinite when unreachable)
+     * Uses bucket-based many-to-many over the contraction hierarchy; no routes are built
+     */
+    public double[][] computeMatrix(List<String> sourceIds, List<String> targetIds, String transportMode) {
+        ContractionHierarchy hierarchy = contractionHierarchyFor(conditions.get(), transportMode);
+        return hierarchy.distanceMatrix(nodeIds(hierarchy.getGraph(), sourceIds),
+                nodeIds(hierarchy.getGraph(), targetIds), executors.parallel());
+    }
+
+    /**
+     * Same pairs as computeMatrix but with full routes, for callers that need the paths
+     */
+    public Route[][] computeRouteMatrix(List<String> sourceIds, List<String> targetIds, String transportMode) {
+        ContractionHierarchy hierarchy = contractionHierarchyFor(conditions.get(), transportMode);
+        CompactGraph snapshot = hierarchy.getGraph();
+        int[] sources = nodeIds(snapshot, sourceIds);
+        int[] targets = nodeIds(snapshot, targetIds);
+        Route[][] routes = new Route[sources.length][targets.length];
+        executors.parallel().submit(() -> IntStream.range(0, sources.length).parallel()
+                .forEach(i -> {
+                    for (int j = 0; j < targets.length; j++) {
+                        routes[i][j] = hierarchy.findShortestPath(snapshot.getLocation(sources[i]),
+                                snapshot.getLocation(targets[j]));
+                    }
+                })).join();
+        return routes;
+    }
+
+    /**
+     * Everything reachable within the budget (minutes) from one location under current conditions
+     */
+    public IsochroneFinder.Isochrone findReachable(String originId, double budgetMinutes, String transportMode) {
+        Location origin = campusGraph.getLocationById(originId);
+        if (origin == null) {
+            throw new IllegalArgumentException("Unknown location id: " + originId);
+        }
+        return IsochroneFinder.compute(conditions.get().snapshot, origin, budgetMinutes, transportMode);
+    }
+
+    /**
+     * Earliest-arrival route for a given departure, pricing each road at the time it is reached
+     * (hourly traffic profiles) rather than with the multiplier at query time
+     */
+    public TimeDependentPathfinder.TimedRoute findTimeDependentRoute(String sourceId, String destinationId,
+                                                                     String transportMode, LocalDateTime departure) {
+        Location source = campusGraph.getLocationById(sourceId);
+        Location destination = campusGraph.getLocationById(destinationId);
+        if (source == null || destination == null) return null;
+
+        Conditions published = conditions.get();
+        TrafficProfiles profiles = published.trafficProfiles.computeIfAbsent(transportMode,
+                mode -> TrafficProfiles.build(published.snapshot, mode, trafficManager));
+        double departureMinute = departure.getHour() * 60 + departure.getMinute() + departure.getSecond() / 60.0;
+        return TimeDependentPathfinder.findEarliestArrival(profiles, source, destination, departureMinute, true);
+    }
+
+    /**
+     * Pareto front between two locations for 2-4 of ParetoPathfinder.CRITERIA, ordered by the first one
+     */
+    public List<ParetoPathfinder.ParetoRoute> findParetoRoutes(String sourceId, String destinationId,
+                                                               String transportMode, String... criteria) {
+        Location source = campusGraph.getLocationById(sourceId);
+        Location destination = campusGraph.getLocationById(destinationId);
+        if (source == null || destination == null) return new ArrayList<>();
+        return ParetoPathfinder.findParetoRoutes(conditions.get().snapshot, source, destination, transportMode, criteria);
+    }
+
+    /**
+     * Best visiting order for the stops between a start and an optional end (null to finish at
+     * the last stop), with the legs stitched into one route; null when a stop is unreachable
+     */
+    public TourOptimizer.Tour planTour(String startId, List<String> stopIds, String endId, String transportMode) {
+        Location start = campusGraph.getLocationById(startId);
+        Location end = endId == null ? null : campusGraph.getLocationById(endId);
+        if (start == null || (endId != null && end == null)) return null;
+        List<Location> stops = new ArrayList<>();
+        for (String stopId : stopIds) {
+            Location stop = campusGraph.getLocationById(stopId);
+            if (stop == null) throw new IllegalArgumentException("Unknown location id: " + stopId);
+            stops.add(stop);
+        }
+        return TourOptimizer.optimize(contractionHierarchyFor(conditions.get(), transportMode), start, stops, end,
+                TOUR_BUDGET_MILLIS, executors.parallel());
+    }
+
+    private static int[] nodeIds(CompactGraph snapshot, List<String> locationIds) {
+        int[] nodes = new int[locationIds.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = snapshot.indexOf(locationIds.get(i));
+            if (nodes[i] < 0) throw new IllegalArgumentException("Unknown location id: " + locationIds.get(i));
+        }
+        return nodes;
+    }
+
+    private HubLabelIndex distanceOracleFor(String mode) {
+        Conditions published = conditions.get();
+        return published.distanceOracles.computeIfAbsent(mode, m -> HubLabelIndex.build(published.snapshot, m));
+    }
+
     // Existing methods with same signatures for compatibility
     public List<Location> getAvailableLocations() {
         return new ArrayList<>(campusGraph.getAllLocations());
@@ -744,10 +1234,48 @@ public class UGNavigateEngineEnhanced {
         return new CampusStats(
                 campusGraph.getLocationCount(),
                 campusGraph.getEdgeCount(),
-                routeCache.size()
+                routeCache.size(),
+                routeCache.getHitCount(),
+                routeCache.getMissCount(),
+                routeCache.getEvictionCount()
         );
     }
 
+    /**
+     * Close or reopen one road; a closure evicts just the cached routes that use it
+     */
+    public synchronized void setRoadClosure(String sourceId, String destinationId, boolean closed) {
+        CompactGraph current = conditions.get().snapshot;
+        int arc = arcBetween(current, sourceId, destinationId);
+        if (arc < 0) return;
+        if (closed) closedRoads.add(arc); else closedRoads.remove(arc);
+
+        // Same conditions as published, with just this road changed
+        double[] multipliers = new double[current.getArcCount()];
+        boolean[] closures = new boolean[multipliers.length];
+        for (int i = 0; i < multipliers.length; i++) {
+            multipliers[i] = current.getTrafficMultiplier(i);
+            closures[i] = current.isClosed(i);
+        }
+        closures[arc] = closed;
+        publishConditions(current.withConditions(multipliers, closures));
+    }
+
+    /**
+     * First arc from one location to another, or -1 when either is unknown or they are not adjacent
+     */
+    private static int arcBetween(CompactGraph snapshot, String sourceId, String destinationId) {
+        int source = snapshot.indexOf(sourceId);
+        int destination = snapshot.indexOf(destinationId);
+        if (source < 0 || destination < 0) return -1;
+        int[] offsets = snapshot.getOffsets();
+        int[] targets = snapshot.getTargets();
+        for (int arc = offsets[source]; arc < offsets[source + 1]; arc++) {
+            if (targets[arc] == destination) return arc;
+        }
+        return -1;
+    }
+
     public void clearCache() {
         routeCache.clear();
     }
@@ -757,14 +1285,7 @@ public class UGNavigateEngineEnhanced {
     }
 
     public void shutdown() {
-        threadPool.shutdown();
-        try {
-            if (!threadPool.awaitTermination(10, TimeUnit.SECONDS)) {
-                threadPool.shutdownNow();
-            }
-        } catch (InterruptedException e) {
-            threadPool.shutdownNow();
-        }
+        executors.shutdown(10_000);
     }
 
     // Expose graph for UI helpers (read-only usage in UI)
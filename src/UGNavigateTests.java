@@ -1,7 +1,10 @@
 /**
  * Unit testing class for validation
  */
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.*;
 class UGNavigateTests {
 
     public static void runAllTests() {
@@ -12,6 +15,31 @@ class UGNavigateTests {
         testRoutingEngine();
         testSearchFunctionality();
         testSortingAlgorithms();
+        testCompactGraph();
+        testIndexedDijkstra();
+        testBidirectionalSearch();
+        testLandmarkHeuristic();
+        testContractionHierarchy();
+        testRoutingOverlay();
+        testKShortestPaths();
+        testFloydWarshall();
+        testSparseAllPairs();
+        testAllPairsRepair();
+        testHubLabels();
+        testDistanceMatrix();
+        testIsochrone();
+        testTimeDependentRouting();
+        testParetoRoutes();
+        testTourOptimizer();
+        testViaLandmarkRoutes();
+        testSearchDeadline();
+        testLatencyBudget();
+        testVirtualThreadExecutors();
+        testRouteCache();
+        testCacheReverseIndex();
+        testRequestCoalescing();
+        testBackgroundConditionsRefresh();
+        testVersionedSnapshots();
 
         System.out.println("All tests completed.");
     }
@@ -83,7 +111,7 @@ class UGNavigateTests {
         System.out.println("Testing sorting algorithms...");
 
         // Create test routes
-        List<Route> routes = new java.util.ArrayList<>();
+        List<Route> routes = new ArrayList<>();
         Route route1 = new Route("walking");
         Route route2 = new Route("walking");
         Route route3 = new Route("walking");
@@ -94,12 +122,1231 @@ class UGNavigateTests {
         routes.add(route3);
 
         // Test that sorting doesn't crash
-        RouteSorting.QuickSort.sortByDistance(new java.util.ArrayList<>(routes));
-        RouteSorting.MergeSort.sortByTime(new java.util.ArrayList<>(routes));
+        RouteSorting.QuickSort.sortByDistance(new ArrayList<>(routes));
+        RouteSorting.MergeSort.sortByTime(new ArrayList<>(routes));
 
         System.out.println("✓ Sorting algorithms tests passed");
     }
 
+    private static void testCompactGraph() {
+        System.out.println("Testing CompactGraph...");
+
+        CampusGraph graph = buildCampusGraph();
+        CompactGraph snapshot = graph.snapshot();
+
+        assert snapshot.getNodeCount() == graph.getLocationCount() : "Snapshot should keep every location";
+        assert snapshot.getArcCount() == graph.getEdgeCount() * 2 : "Snapshot should keep both directions";
+
+        Location library = graph.getLocationById("LIB001");
+        int node = snapshot.indexOf(library);
+        assert snapshot.getLocation(node).equals(library) : "Node ids should round-trip";
+
+        int arc = snapshot.getOffsets()[node];
+        Edge edge = snapshot.getEdge(arc);
+        assert snapshot.weights("walking")[arc] == edge.getWalkingTime() : "Walking weight should match edge";
+
+        edge.setClosed(true);
+        assert graph.snapshot().weights("driving")[arc] == Double.POSITIVE_INFINITY : "Closed road should be infinite";
+        edge.setClosed(false);
+
+        Location hall = graph.getLocationById("HALL001");
+        Route aStar = AStarPathfinder.findOptimalPath(snapshot, library, hall, "walking");
+        Route dijkstra = DijkstraPathfinder.findShortestPath(graph, library, hall, "walking").route;
+        assert aStar != null && dijkstra != null : "Both searches should find a route";
+        assert Math.abs(aStar.getTotalTime() - dijkstra.getTotalTime()) < 1e-9 : "A* should match Dijkstra";
+
+        System.out.println("✓ CompactGraph tests passed");
+    }
+
+    private static void testIndexedDijkstra() {
+        System.out.println("Testing indexed Dijkstra...");
+
+        CampusGraph graph = buildCampusGraph();
+        CompactGraph snapshot = graph.snapshot();
+        List<Location> locations = new ArrayList<>(graph.getAllLocations());
+
+        // Repeated queries on one thread reuse the pooled workspace via version stamps
+        for (Location target : locations) {
+            Location source = locations.get(0);
+            DijkstraPathfinder.PathResult expected = DijkstraPathfinder.findShortestPath(graph, source, target, "driving");
+            Route indexed = DijkstraPathfinder.findShortestPathIndexed(snapshot, source, target, "driving");
+            double expectedTime = expected.distances.get(target);
+            if (expectedTime == Double.POSITIVE_INFINITY) {
+                assert indexed == null : "Unreachable target should yield no route";
+            } else {
+                assert indexed != null && Math.abs(indexed.getTotalTime() - expectedTime) < 1e-9
+                        : "Indexed Dijkstra should match the reference distances";
+            }
+        }
+
+        System.out.println("✓ Indexed Dijkstra tests passed");
+    }
+
+    private static void testBidirectionalSearch() {
+        System.out.println("Testing bidirectional search...");
+
+        CampusGraph graph = buildCampusGraph();
+        applyRandomConditions(graph, new Random(42));
+        CompactGraph snapshot = graph.snapshot();
+        List<Location> locations = new ArrayList<>(graph.getAllLocations());
+
+        for (int i = 0; i < locations.size(); i += 5) {
+            for (int j = 0; j < locations.size(); j += 3) {
+                Location source = locations.get(i);
+                Location target = locations.get(j);
+                Route expected = DijkstraPathfinder.findShortestPathIndexed(snapshot, source, target, "walking");
+                Route plain = BidirectionalPathfinder.findPath(snapshot, source, target, "walking", false, null);
+                Route aStar = BidirectionalPathfinder.findPath(snapshot, source, target, "walking", true, null);
+                Route parallel = BidirectionalPathfinder.findPath(snapshot, source, target, "walking", true,
+                        ForkJoinPool.commonPool());
+                assertSameCost(expected, plain, "Bidirectional Dijkstra");
+                assertSameCost(expected, aStar, "Bidirectional A*");
+                assertSameCost(expected, parallel, "Parallel bidirectional A*");
+            }
+        }
+
+        System.out.println("✓ Bidirectional search tests passed");
+    }
+
+    private static void testLandmarkHeuristic() {
+        System.out.println("Testing ALT landmark heuristic...");
+
+        CampusGraph graph = buildCampusGraph();
+        applyRandomConditions(graph, new Random(7));
+        CompactGraph snapshot = graph.snapshot();
+        LandmarkHeuristic landmarks = LandmarkHeuristic.build(snapshot, "driving", 4);
+        assert landmarks.getLandmarkCount() == 4 : "Should select the requested number of landmarks";
+
+        List<Location> locations = new ArrayList<>(graph.getAllLocations());
+        for (int i = 0; i < locations.size(); i += 4) {
+            for (int j = 0; j < locations.size(); j += 2) {
+                Location source = locations.get(i);
+                Location target = locations.get(j);
+                Route expected = DijkstraPathfinder.findShortestPathIndexed(snapshot, source, target, "driving");
+                Route alt = AStarPathfinder.findOptimalPath(snapshot, source, target, "driving", landmarks);
+                assertSameCost(expected, alt, "ALT A*");
+                if (expected != null) {
+                    double bound = landmarks.estimate(snapshot.indexOf(source), snapshot.indexOf(target));
+                    assert bound <= expected.getTotalTime() + 1e-9 : "ALT bound should be admissible";
+                }
+            }
+        }
+
+        System.out.println("✓ ALT landmark heuristic tests passed");
+    }
+
+    private static void testContractionHierarchy() {
+        System.out.println("Testing contraction hierarchy...");
+
+        CampusGraph graph = buildCampusGraph();
+        applyRandomConditions(graph, new Random(11));
+        CompactGraph snapshot = graph.snapshot();
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(snapshot, "walking");
+
+        List<Location> locations = new ArrayList<>(graph.getAllLocations());
+        for (Location source : locations) {
+            for (Location target : locations) {
+                Route expected = DijkstraPathfinder.findShortestPathIndexed(snapshot, source, target, "walking");
+                Route ch = hierarchy.findShortestPath(source, target);
+                assertSameCost(expected, ch, "Contraction hierarchy");
+                if (ch != null) {
+                    assertConnected(ch);
+                    double distance = hierarchy.distance(snapshot.indexOf(source), snapshot.indexOf(target));
+                    assert Math.abs(distance - expected.getTotalTime()) < 1e-6 : "CH distance should match";
+                }
+            }
+        }
+
+        System.out.println("✓ Contraction hierarchy tests passed");
+    }
+
+    private static void testRoutingOverlay() {
+        System.out.println("Testing routing overlay...");
+
+        CampusGraph graph = buildCampusGraph();
+        RoutingOverlay overlay = RoutingOverlay.build(graph.snapshot(), 4); // small cells force several levels
+        assert overlay.getLevelCount() > 1 : "Overlay should have more than one level";
+
+        // Same partition, re-customized after each traffic change
+        Random random = new Random(12);
+        for (int round = 0; round < 3; round++) {
+            applyRandomConditions(graph, random);
+            CompactGraph snapshot = graph.snapshot();
+            RoutingOverlay.Metric metric = overlay.customize(snapshot, "walking");
+
+            List<Location> locations = new ArrayList<>(graph.getAllLocations());
+            for (Location source : locations) {
+                for (Location target : locations) {
+                    Route expected = DijkstraPathfinder.findShortestPathIndexed(snapshot, source, target, "walking");
+                    Route crp = metric.findShortestPath(source, target);
+                    assertSameCost(expected, crp, "Routing overlay");
+                    if (crp != null) assertConnected(crp);
+                }
+            }
+        }
+
+        System.out.println("✓ Routing overlay tests passed");
+    }
+
+    private static void testKShortestPaths() {
+        System.out.println("Testing k-shortest paths...");
+
+        CampusGraph graph = buildCampusGraph();
+        applyRandomConditions(graph, new Random(13));
+        CompactGraph snapshot = graph.snapshot();
+        double[] weights = snapshot.weights("walking");
+
+        List<Location> locations = new ArrayList<>(graph.getAllLocations());
+        Random random = new Random(14);
+        for (int q = 0; q < 40; q++) {
+            Location source = locations.get(random.nextInt(locations.size()));
+            Location target = locations.get(random.nextInt(locations.size()));
+
+            // Brute force: every simple path, sorted by cost
+            List<Double> expected = new ArrayList<>();
+            enumerateSimplePaths(snapshot, weights, snapshot.indexOf(source), snapshot.indexOf(target),
+                    new boolean[snapshot.getNodeCount()], 0.0, expected);
+            Collections.sort(expected);
+
+            List<Route> routes = KShortestPathfinder.findPaths(snapshot, source, target, "walking", 6, null);
+            List<Route> parallel = DijkstraPathfinder.findMultiplePaths(graph, source, target, "walking", 6);
+            assert routes.size() == Math.min(6, expected.size()) : "Yen should return every path up to k";
+            assert parallel.size() == routes.size() : "Parallel spur searches should find the same paths";
+
+            Set<List<Edge>> distinct = new HashSet<>(); // by edge: parallel roads give distinct paths
+            for (int i = 0; i < routes.size(); i++) {
+                Route route = routes.get(i);
+                assertConnected(route);
+                assert new HashSet<>(route.getPath()).size() == route.getPath().size() : "Paths should be loopless";
+                assert distinct.add(route.getEdges()) : "Paths should be distinct";
+                assert Math.abs(route.getTotalTime() - expected.get(i)) < 1e-6 : "Path " + i + " should be the i-th shortest";
+                assert Math.abs(parallel.get(i).getTotalTime() - expected.get(i)) < 1e-6 : "Parallel path costs should match";
+            }
+        }
+
+        System.out.println("✓ K-shortest paths tests passed");
+    }
+
+    private static void testFloydWarshall() {
+        System.out.println("Testing Floyd-Warshall...");
+
+        CampusGraph graph = buildCampusGraph();
+        applyRandomConditions(graph, new Random(15));
+        CompactGraph snapshot = graph.snapshot();
+        FloydWarshallPathfinder.AllPairsResult table = FloydWarshallPathfinder.computeAllPairsShortestPaths(
+                snapshot, "walking", ForkJoinPool.commonPool());
+
+        List<Location> locations = new ArrayList<>(graph.getAllLocations());
+        for (Location source : locations) {
+            for (Location target : locations) {
+                Route expected = DijkstraPathfinder.findShortestPathIndexed(snapshot, source, target, "walking");
+                Route path = table.getPath(source, target, "walking", graph);
+                double distance = table.getDistance(source, target);
+                if (expected == null) {
+                    assert path == null && distance == Double.POSITIVE_INFINITY : "Unreachable pairs should stay infinite";
+                    continue;
+                }
+                // Distances are stored as floats
+                double tolerance = 1e-4 * Math.max(1.0, expected.getTotalTime());
+                assert Math.abs(distance - expected.getTotalTime()) < tolerance : "Table distance should match Dijkstra";
+                assertConnected(path);
+                assert Math.abs(path.getTotalTime() - expected.getTotalTime()) < tolerance : "Table path should be shortest";
+            }
+        }
+
+        System.out.println("✓ Floyd-Warshall tests passed");
+    }
+
+    private static void testSparseAllPairs() {
+        System.out.println("Testing sparse all-pairs...");
+
+        CampusGraph graph = buildCampusGraph();
+        applyRandomConditions(graph, new Random(16));
+        CompactGraph snapshot = graph.snapshot();
+        FloydWarshallPathfinder.AllPairsResult dense = FloydWarshallPathfinder.computeAllPairsShortestPaths(
+                snapshot, "walking", null);
+        FloydWarshallPathfinder.AllPairsResult sparse = AllPairsPathfinder.computeSparse(
+                snapshot, "walking", ForkJoinPool.commonPool());
+
+        List<Location> locations = new ArrayList<>(graph.getAllLocations());
+        for (Location source : locations) {
+            for (Location target : locations) {
+                double expected = dense.getDistance(source, target);
+                double actual = sparse.getDistance(source, target);
+                Route route = sparse.getPath(source, target, "walking", graph);
+                if (expected == Double.POSITIVE_INFINITY) {
+                    assert actual == expected && route == null : "Sparse table should agree on unreachable pairs";
+                    continue;
+                }
+                double tolerance = 1e-4 * Math.max(1.0, expected);
+                assert Math.abs(actual - expected) < tolerance : "Sparse distance should match Floyd-Warshall";
+                assertConnected(route);
+                assert Math.abs(route.getTotalTime() - expected) < tolerance : "Sparse path should be shortest";
+            }
+        }
+
+        System.out.println("✓ Sparse all-pairs tests passed");
+    }
+
+    private static void testAllPairsRepair() {
+        System.out.println("Testing all-pairs repair...");
+
+        CampusGraph graph = buildCampusGraph();
+        FloydWarshallPathfinder.AllPairsResult table = AllPairsPathfinder.compute(graph.snapshot(), "walking", null);
+        List<Location> locations = new ArrayList<>(graph.getAllLocations());
+        List<Edge> edges = new ArrayList<>();
+        for (Location location : locations) edges.addAll(graph.getNeighbors(location));
+
+        // Small batches of slowdowns, speedups, closures and reopenings
+        Random random = new Random(17);
+        for (int round = 0; round < 20; round++) {
+            for (int change = 0; change < 3; change++) {
+                Edge edge = edges.get(random.nextInt(edges.size()));
+                if (random.nextInt(4) == 0) {
+                    edge.setClosed(!edge.isClosed());
+                } else {
+                    edge.setTrafficMultiplier(0.5 + 2 * random.nextDouble());
+                }
+            }
+            CompactGraph snapshot = graph.snapshot();
+            FloydWarshallPathfinder.AllPairsResult previous = table;
+            table = AllPairsPathfinder.repair(table, snapshot, ForkJoinPool.commonPool());
+            FloydWarshallPathfinder.AllPairsResult fresh = AllPairsPathfinder.computeSparse(snapshot, "walking", null);
+            assert previous.getGraph() != snapshot : "Repair should not modify the previous table";
+
+            for (Location source : locations) {
+                for (Location target : locations) {
+                    double expected = fresh.getDistance(source, target);
+                    double actual = table.getDistance(source, target);
+                    Route route = table.getPath(source, target, "walking", graph);
+                    if (expected == Double.POSITIVE_INFINITY) {
+                        assert actual == expected && route == null : "Repaired table should drop closed-off pairs";
+                        continue;
+                    }
+                    double tolerance = 1e-4 * Math.max(1.0, expected);
+                    assert Math.abs(actual - expected) < tolerance : "Repaired distance should match a recompute";
+                    assertConnected(route);
+                    assert Math.abs(route.getTotalTime() - expected) < tolerance : "Repaired path should be shortest";
+                }
+            }
+        }
+
+        System.out.println("✓ All-pairs repair tests passed");
+    }
+
+    private static void testHubLabels() {
+        System.out.println("Testing hub labels...");
+
+        CampusGraph graph = buildCampusGraph();
+        applyRandomConditions(graph, new Random(18));
+        CompactGraph snapshot = graph.snapshot();
+        HubLabelIndex labels = HubLabelIndex.build(snapshot, "walking");
+        assert labels.getLabelEntryCount() < 2 * snapshot.getNodeCount() * snapshot.getNodeCount()
+                : "Labels should be smaller than the full matrix";
+
+        HubLabelIndex reloaded;
+        try {
+            File file = File.createTempFile("hub-labels", ".bin");
+            file.deleteOnExit();
+            labels.save(file);
+            reloaded = HubLabelIndex.load(file, snapshot);
+        } catch (IOException e) {
+            throw new AssertionError("Hub labels should round-trip through a file: " + e.getMessage());
+        }
+
+        List<Location> locations = new ArrayList<>(graph.getAllLocations());
+        for (Location source : locations) {
+            for (Location target : locations) {
+                Route expected = DijkstraPathfinder.findShortestPathIndexed(snapshot, source, target, "walking");
+                double distance = labels.distance(source, target);
+                if (expected == null) {
+                    assert distance == Double.POSITIVE_INFINITY : "Hub labels should not connect unreachable pairs";
+                    continue;
+                }
+                double tolerance = 1e-4 * Math.max(1.0, expected.getTotalTime());
+                assert Math.abs(distance - expected.getTotalTime()) < tolerance : "Hub label distance should match Dijkstra";
+                assert reloaded.distance(source, target) == distance : "Reloaded labels should answer identically";
+            }
+        }
+
+        System.out.println("✓ Hub label tests passed");
+    }
+
+    private static void testDistanceMatrix() {
+        System.out.println("Testing many-to-many matrix...");
+
+        CampusGraph graph = buildCampusGraph();
+        applyRandomConditions(graph, new Random(19));
+        CompactGraph snapshot = graph.snapshot();
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(snapshot, "walking");
+
+        int n = snapshot.getNodeCount();
+        int[] sources = new int[n];
+        int[] targets = new int[n / 2];
+        for (int i = 0; i < n; i++) sources[i] = i;
+        for (int j = 0; j < targets.length; j++) targets[j] = n - 1 - 2 * j;
+        double[][] matrix = hierarchy.distanceMatrix(sources, targets, ForkJoinPool.commonPool());
+
+        assert matrix.length == sources.length && matrix[0].length == targets.length : "Matrix should be sources x targets";
+        for (int i = 0; i < sources.length; i++) {
+            for (int j = 0; j < targets.length; j++) {
+                Route expected = DijkstraPathfinder.findShortestPathIndexed(snapshot,
+                        snapshot.getLocation(sources[i]), snapshot.getLocation(targets[j]), "walking");
+                double cost = expected == null ? Double.POSITIVE_INFINITY : expected.getTotalTime();
+                assert cost == matrix[i][j] || Math.abs(cost - matrix[i][j]) < 1e-6 : "Matrix entry should match Dijkstra";
+            }
+        }
+
+        System.out.println("✓ Many-to-many matrix tests passed");
+    }
+
+    private static void testIsochrone() {
+        System.out.println("Testing isochrone...");
+
+        CampusGraph graph = buildCampusGraph();
+        applyRandomConditions(graph, new Random(20));
+        CompactGraph snapshot = graph.snapshot();
+        List<Location> locations = new ArrayList<>(graph.getAllLocations());
+
+        for (Location origin : locations) {
+            IsochroneFinder.Isochrone isochrone = IsochroneFinder.compute(snapshot, origin, 10.0, "walking");
+            assert isochrone.getLocations().get(0).equals(origin) : "Origin should be reached first";
+
+            Set<Location> reached = new HashSet<>(isochrone.getLocations());
+            for (int i = 0; i < isochrone.getLocations().size(); i++) {
+                assert isochrone.getArrivalTime(i) <= 10.0 : "Arrivals should respect the budget";
+                if (i > 0) assert isochrone.getArrivalTime(i) >= isochrone.getArrivalTime(i - 1) : "Arrivals should be ordered";
+            }
+            for (Location target : locations) {
+                Route route = DijkstraPathfinder.findShortestPathIndexed(snapshot, origin, target, "walking");
+                boolean within = route != null && route.getTotalTime() <= 10.0;
+                assert within == reached.contains(target) : "Isochrone should hold exactly the locations within budget";
+            }
+            if (isochrone.getBoundary().size() >= 3) {
+                double area = 0;
+                List<double[]> hull = isochrone.getBoundary();
+                for (int i = 0; i < hull.size(); i++) {
+                    double[] a = hull.get(i), b = hull.get((i + 1) % hull.size());
+                    area += a[1] * b[0] - b[1] * a[0];
+                }
+                assert area > 0 : "Boundary should be a counter-clockwise polygon";
+            }
+        }
+
+        System.out.println("✓ Isochrone tests passed");
+    }
+
+    private static void testTimeDependentRouting() {
+        System.out.println("Testing time-dependent routing...");
+
+        CampusGraph graph = buildCampusGraph();
+        CompactGraph snapshot = graph.snapshot();
+        TrafficManager traffic = new TrafficManager();
+        TrafficProfiles profiles = TrafficProfiles.build(snapshot, "walking", traffic);
+        assert profiles.getBreakpointCount() < snapshot.getArcCount() * 24 : "Flat stretches should be compressed";
+
+        // Profiles match the hourly multipliers at mid-hour
+        Edge edge = snapshot.getEdge(0);
+        assert Math.abs(profiles.travelTime(0, 8 * 60 + 30) - edge.getBaseWalkingTime() * 1.5) < 1e-4 : "Peak cost";
+        assert Math.abs(profiles.travelTime(0, 3 * 60) - edge.getBaseWalkingTime()) < 1e-4 : "Off-peak cost";
+
+        List<Location> locations = new ArrayList<>(graph.getAllLocations());
+        for (double departure : new double[]{2 * 60, 7 * 60 + 50, 16 * 60 + 40, 23 * 60 + 45}) {
+            double[] expected = new double[snapshot.getNodeCount()];
+            for (Location source : locations) {
+                earliestArrivalsByRelaxation(profiles, snapshot.indexOf(source), departure, expected);
+                for (Location target : locations) {
+                    TimeDependentPathfinder.TimedRoute dijkstra =
+                            TimeDependentPathfinder.findEarliestArrival(profiles, source, target, departure, false);
+                    TimeDependentPathfinder.TimedRoute astar =
+                            TimeDependentPathfinder.findEarliestArrival(profiles, source, target, departure, true);
+                    double best = expected[snapshot.indexOf(target)];
+                    if (best == Double.POSITIVE_INFINITY) {
+                        assert dijkstra == null && astar == null : "Unreachable targets should have no timed route";
+                        continue;
+                    }
+                    assert Math.abs(dijkstra.getArrivalMinute() - best) < 1e-6 : "TD Dijkstra should find the earliest arrival";
+                    assert Math.abs(astar.getArrivalMinute() - best) < 1e-6 : "TD A* should find the earliest arrival";
+                    assertConnected(dijkstra.getRoute());
+                    assert Math.abs(dijkstra.getRoute().getTotalTime() - dijkstra.getTravelMinutes()) < 1e-6
+                            : "Timed route should carry the time-dependent travel time";
+                }
+            }
+        }
+
+        System.out.println("✓ Time-dependent routing tests passed");
+    }
+
+    private static void testParetoRoutes() {
+        System.out.println("Testing Pareto routes...");
+
+        CampusGraph graph = buildCampusGraph();
+        applyRandomConditions(graph, new Random(23));
+        CompactGraph snapshot = graph.snapshot();
+        String[] criteria = {"time", "distance", "safety", "accessibility"};
+        double[][] costs = new double[criteria.length][];
+        for (int c = 0; c < criteria.length; c++) {
+            costs[c] = ParetoPathfinder.criterionCosts(snapshot, "walking", criteria[c]);
+        }
+        double[] open = snapshot.weights("walking");
+
+        List<Location> locations = new ArrayList<>(graph.getAllLocations());
+        Random random = new Random(24);
+        for (int q = 0; q < 30; q++) {
+            Location source = locations.get(random.nextInt(locations.size()));
+            Location target = locations.get(random.nextInt(locations.size()));
+            int k = 2 + q % 3;
+            String[] chosen = Arrays.copyOf(criteria, k);
+
+            // Brute force: non-dominated cost vectors over every simple path
+            List<double[]> all = new ArrayList<>();
+            enumerateCostVectors(snapshot, open, Arrays.copyOf(costs, k), snapshot.indexOf(source),
+                    snapshot.indexOf(target), new boolean[snapshot.getNodeCount()], new double[k], all);
+            Set<List<Double>> expected = new HashSet<>();
+            for (double[] vector : all) {
+                boolean dominated = false;
+                for (double[] other : all) {
+                    boolean noWorse = true;
+                    boolean better = false;
+                    for (int c = 0; c < k; c++) {
+                        noWorse &= other[c] <= vector[c];
+                        better |= other[c] < vector[c];
+                    }
+                    dominated |= noWorse && better;
+                }
+                if (!dominated) {
+                    List<Double> key = new ArrayList<>();
+                    for (double value : vector) key.add(value);
+                    expected.add(key);
+                }
+            }
+
+            List<ParetoPathfinder.ParetoRoute> front =
+                    ParetoPathfinder.findParetoRoutes(snapshot, source, target, "walking", chosen);
+            Set<List<Double>> actual = new HashSet<>();
+            for (ParetoPathfinder.ParetoRoute option : front) {
+                assertConnected(option.getRoute());
+                assert Math.abs(option.getRoute().getTotalTime() - option.getCost(0)) < 1e-6 : "Time cost should match the route";
+                List<Double> key = new ArrayList<>();
+                for (int c = 0; c < k; c++) key.add(option.getCost(c));
+                assert actual.add(key) : "Front should not repeat a cost vector";
+            }
+            assert actual.equals(expected) : "Pareto front should match brute force for " + k + " criteria";
+
+            if (!front.isEmpty()) {
+                Route fastest = DijkstraPathfinder.findShortestPathIndexed(snapshot, source, target, "walking");
+                assert Math.abs(front.get(0).getCost(0) - fastest.getTotalTime()) < 1e-6 : "Front should start at the fastest route";
+            }
+        }
+
+        // A bag of one label keeps only a single non-dominated option per node
+        Location a = locations.get(0);
+        Location b = locations.get(locations.size() - 1);
+        assert ParetoPathfinder.findParetoRoutes(snapshot, a, b, "walking", 1, criteria).size() <= 1 : "Bounded bags";
+
+        System.out.println("✓ Pareto route tests passed");
+    }
+
+    private static void testTourOptimizer() {
+        System.out.println("Testing tour optimizer...");
+
+        CampusGraph graph = buildCampusGraph();
+        applyRandomConditions(graph, new Random(25));
+        CompactGraph snapshot = graph.snapshot();
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(snapshot, "walking");
+        List<Location> locations = new ArrayList<>(graph.getAllLocations());
+
+        Random random = new Random(26);
+        for (int q = 0; q < 20; q++) {
+            Collections.shuffle(locations, random);
+            int m = q % 7;
+            Location start = locations.get(0);
+            Location end = q % 2 == 0 ? locations.get(1) : null;
+            List<Location> stops = new ArrayList<>(locations.subList(2, 2 + m));
+
+            // Brute force over every visiting order
+            double best = Double.POSITIVE_INFINITY;
+            for (List<Location> order : permutations(stops)) {
+                double total = 0.0;
+                Location at = start;
+                for (Location stop : order) {
+                    total += hierarchy.distance(snapshot.indexOf(at), snapshot.indexOf(stop));
+                    at = stop;
+                }
+                if (end != null) total += hierarchy.distance(snapshot.indexOf(at), snapshot.indexOf(end));
+                best = Math.min(best, total);
+            }
+
+            TourOptimizer.Tour tour = TourOptimizer.optimize(hierarchy, start, stops, end, 50, null);
+            if (best == Double.POSITIVE_INFINITY) {
+                assert tour == null : "Tours with unreachable stops should be rejected";
+                continue;
+            }
+            assert tour.isOptimal() : "Small tours should use Held-Karp";
+            assert tour.getStops().size() == m + (end == null ? 1 : 2) : "Every stop should be visited once";
+            assert new HashSet<>(tour.getStops().subList(1, m + 1)).equals(new HashSet<>(stops)) : "Stops should be a permutation";
+            assertConnected(tour.getRoute());
+            assert Math.abs(tour.getRoute().getTotalTime() - best) < 1e-6 : "Held-Karp should find the best order";
+        }
+
+        // Past the Held-Karp limit: local search still returns a complete, stitched tour
+        Collections.shuffle(locations, random);
+        List<Location> stops = new ArrayList<>(locations.subList(1, 1 + TourOptimizer.HELD_KARP_LIMIT + 10));
+        TourOptimizer.Tour tour = TourOptimizer.optimize(hierarchy, locations.get(0), stops, null, 100, null);
+        if (tour != null) {
+            assert !tour.isOptimal() : "Large tours should use local search";
+            assert new HashSet<>(tour.getStops()).size() == stops.size() + 1 : "Every stop should be visited once";
+            assertConnected(tour.getRoute());
+            List<Location> path = tour.getRoute().getPath();
+            assert path.get(path.size() - 1).equals(tour.getStops().get(stops.size())) : "Route should end at the last stop";
+        }
+
+        System.out.println("✓ Tour optimizer tests passed");
+    }
+
+    private static void testViaLandmarkRoutes() {
+        System.out.println("Testing via-landmark routes...");
+
+        CampusGraph graph = buildCampusGraph();
+        applyRandomConditions(graph, new Random(27));
+        CompactGraph snapshot = graph.snapshot();
+        LandmarkSearch.LandmarkSearchEngine search = new LandmarkSearch.LandmarkSearchEngine(graph);
+        List<Location> locations = new ArrayList<>(graph.getAllLocations());
+
+        Random random = new Random(28);
+        for (String keyword : new String[]{"hall", "library", "bank", "food"}) {
+            Set<Location> vias = search.findLocationsByKeyword(keyword);
+            for (int q = 0; q < 10; q++) {
+                Location source = locations.get(random.nextInt(locations.size()));
+                Location target = locations.get(random.nextInt(locations.size()));
+
+                // Reference: two separate searches per via
+                double best = Double.POSITIVE_INFINITY;
+                for (Location via : vias) {
+                    Route first = DijkstraPathfinder.findShortestPathIndexed(snapshot, source, via, "walking");
+                    Route second = DijkstraPathfinder.findShortestPathIndexed(snapshot, via, target, "walking");
+                    if (first != null && second != null) {
+                        best = Math.min(best, first.getTotalTime() + second.getTotalTime());
+                    }
+                }
+
+                List<Route> routes = search.findRoutesWithLandmarks(source, target, "walking", keyword);
+                if (best == Double.POSITIVE_INFINITY) {
+                    assert routes.isEmpty() : "No via should mean no landmark routes";
+                    continue;
+                }
+                assert !routes.isEmpty() && routes.size() <= 3 : "Should return up to three landmark routes";
+                assert Math.abs(routes.get(0).getTotalTime() - best) < 1e-6 : "Best via route should match separate searches";
+                Set<List<Location>> distinct = new HashSet<>();
+                for (int i = 0; i < routes.size(); i++) {
+                    Route route = routes.get(i);
+                    assertConnected(route);
+                    assert route.getPath().get(0).equals(source) : "Landmark route should start at the source";
+                    assert route.getPath().get(route.getPath().size() - 1).equals(target) : "Landmark route should end at the target";
+                    assert !Collections.disjoint(route.getPath(), vias) : "Landmark route should pass a matching location";
+                    assert distinct.add(route.getPath()) : "Landmark routes should be distinct";
+                    assert i == 0 || routes.get(i - 1).getTotalTime() <= route.getTotalTime() + 1e-9 : "Routes should be in time order";
+                }
+            }
+        }
+
+        System.out.println("✓ Via-landmark route tests passed");
+    }
+
+    private static void testSearchDeadline() {
+        System.out.println("Testing search deadlines...");
+
+        CampusGraph graph = buildCampusGraph();
+        CompactGraph snapshot = graph.snapshot();
+        LandmarkSearch.LandmarkSearchEngine search = new LandmarkSearch.LandmarkSearchEngine(graph);
+        List<Location> locations = new ArrayList<>(graph.getAllLocations());
+        Location source = locations.get(0);
+        Location target = locations.get(locations.size() - 1);
+
+        // A live budget changes nothing
+        SearchDeadline live = SearchDeadline.after(60_000);
+        Route expected = DijkstraPathfinder.findShortestPathIndexed(snapshot, source, target, "walking");
+        Route withBudget = DijkstraPathfinder.findShortestPathIndexed(snapshot, source, target, "walking", live);
+        assert Objects.equals(expected, withBudget) : "A live deadline should not change the route";
+        Route bidirectional = BidirectionalPathfinder.findPath(snapshot, source, target, "walking",
+                (SearchHeuristic) null, null, live);
+        assert expected == null ? bidirectional == null
+                : Math.abs(bidirectional.getTotalTime() - expected.getTotalTime()) < 1e-9
+                : "A live deadline should not change the bidirectional route";
+        assert !live.isExpired() && live.remainingMillis() > 0 : "Fresh deadline should have budget left";
+        assert SearchDeadline.NONE.remainingMillis() == Long.MAX_VALUE : "NONE should never run out";
+
+        // Expired, cancelled and interrupted searches are abandoned
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(snapshot, "walking");
+        RoutingOverlay.Metric overlay = RoutingOverlay.build(snapshot, RoutingOverlay.DEFAULT_CELL_SIZE)
+                .customize(snapshot, "walking");
+        SearchDeadline cancelled = SearchDeadline.after(60_000);
+        cancelled.cancel();
+        for (SearchDeadline deadline : new SearchDeadline[]{SearchDeadline.after(0), cancelled}) {
+            assert deadline.isExpired() && deadline.remainingMillis() == 0 : "Deadline should be spent";
+            List<Runnable> searches = Arrays.asList(
+                    () -> DijkstraPathfinder.findShortestPathIndexed(snapshot, source, target, "walking", deadline),
+                    () -> AStarPathfinder.findOptimalPath(snapshot, source, target, "walking",
+                            snapshot.geometricHeuristic("walking"), deadline),
+                    () -> DijkstraPathfinder.findMultiplePaths(graph, source, target, "walking", 4, deadline),
+                    () -> FloydWarshallPathfinder.computeAllPairsShortestPaths(snapshot, "walking", null, deadline),
+                    () -> search.findRoutesWithLandmarks(source, target, "walking", deadline, "hall"),
+                    () -> ParetoPathfinder.findParetoRoutes(snapshot, source, target, "walking",
+                            ParetoPathfinder.DEFAULT_MAX_LABELS_PER_NODE, deadline, "time", "distance"),
+                    () -> BidirectionalPathfinder.findPath(snapshot, source, target, "walking",
+                            (SearchHeuristic) null, null, deadline),
+                    () -> BidirectionalPathfinder.findPath(snapshot, source, target, "walking",
+                            snapshot.geometricHeuristic("walking"), ForkJoinPool.commonPool(),
+                            deadline),
+                    () -> hierarchy.findShortestPath(source, target, deadline),
+                    () -> overlay.findShortestPath(source, target, deadline));
+            for (Runnable searchTask : searches) {
+                assertCancelled(searchTask);
+            }
+        }
+
+        Thread.currentThread().interrupt();
+        try {
+            assertCancelled(() -> DijkstraPathfinder.findShortestPathIndexed(snapshot, source, target, "walking",
+                    SearchDeadline.after(60_000)));
+        } finally {
+            Thread.interrupted(); // clear the flag for the remaining tests
+        }
+        assert DijkstraPathfinder.findShortestPathIndexed(snapshot, source, target, "walking") != null
+                || expected == null : "Searches without a deadline should be unaffected";
+
+        System.out.println("✓ Search deadline tests passed");
+    }
+
+    private static void testLatencyBudget() {
+        System.out.println("Testing latency-budget routing...");
+
+        UGNavigateEngineEnhanced engine = new UGNavigateEngineEnhanced();
+        try {
+            RoutePreferences preferences = new RoutePreferences("walking", "time").withLatencyBudget(5_000);
+            RouteResult quick = engine.findOptimalRoutes("HALL001", "LIB001", preferences);
+            assert quick.hasRoutes() : "Latency-budget mode should answer with the primary route";
+            assert quick.getRoutes().size() <= preferences.maxRoutes : "Answer should respect maxRoutes";
+            for (Route route : quick.getRoutes()) assertConnected(route);
+
+            // The early answer is cached at once; refinement only replaces it
+            RouteResult again = engine.findOptimalRoutes("HALL001", "LIB001", preferences);
+            assert again.getMessage().contains("cached") && again.hasRoutes() : "Early answer should be cached";
+
+            // Refinement annotates its own copies; routes already handed out are never touched again
+            List<List<String>> labels = new ArrayList<>();
+            for (Route route : quick.getRoutes()) labels.add(new ArrayList<>(route.getLandmarksPassedThrough()));
+            long giveUp = System.currentTimeMillis() + 10_000;
+            while (engine.findOptimalRoutes("HALL001", "LIB001", preferences).getRoutes() == again.getRoutes()
+                    && System.currentTimeMillis() < giveUp) {
+                Thread.sleep(20);
+            }
+            for (int i = 0; i < labels.size(); i++) {
+                assert quick.getRoutes().get(i).getLandmarksPassedThrough().equals(labels.get(i))
+                        : "Refinement should not mutate routes from the early answer";
+            }
+            for (Route route : engine.findOptimalRoutes("HALL001", "LIB001", preferences).getRoutes()) {
+                long crowdLabels = route.getLandmarksPassedThrough().stream().filter(l -> l.startsWith("crowd level")).count();
+                assert crowdLabels == 1 : "Each route should be annotated once, got " + crowdLabels;
+            }
+
+            // A budget spent before anything finished answers empty but leaves the cache to the refinement
+            RoutePreferences tight = new RoutePreferences("walking", "time").withLatencyBudget(1);
+            RouteResult rushed = engine.findOptimalRoutes("HALL003", "BANK001", tight);
+            if (!rushed.hasRoutes()) {
+                RouteResult after = engine.findOptimalRoutes("HALL003", "BANK001", tight);
+                assert !after.getMessage().contains("cached") || after.hasRoutes() : "Empty early answers should not be cached";
+            }
+
+            RouteResult blocking = engine.findOptimalRoutes("HALL002", "LIB001", new RoutePreferences("walking", "time"));
+            assert blocking.hasRoutes() && !blocking.getMessage().contains("refining") : "Default mode should wait for all strategies";
+        } catch (InterruptedException e) {
+            throw new AssertionError("Interrupted waiting for refinement");
+        } finally {
+            engine.shutdown();
+        }
+
+        System.out.println("✓ Latency-budget routing tests passed");
+    }
+
+    private static void testVirtualThreadExecutors() {
+        System.out.println("Testing virtual-thread executors...");
+
+        // Far more in-flight requests than search threads: none may starve or deadlock
+        UGNavigateEngineEnhanced engine = new UGNavigateEngineEnhanced(EngineExecutors.virtualThreads(2));
+        try {
+            List<CompletableFuture<RouteResult>> requests = new ArrayList<>();
+            for (int i = 0; i < 300; i++) {
+                requests.add(engine.findOptimalRoutesAsync(i % 2 == 0 ? "HALL001" : "HALL002", "LIB001",
+                        new RoutePreferences("walking", "time")));
+            }
+            for (CompletableFuture<RouteResult> request : requests) {
+                RouteResult result = request.get(60, TimeUnit.SECONDS);
+                assert result.hasRoutes() : "Every concurrent request should get routes";
+            }
+        } catch (Exception e) {
+            throw new AssertionError("Concurrent requests should complete: " + e);
+        } finally {
+            engine.shutdown();
+        }
+
+        EngineExecutors platform = EngineExecutors.platformThreads(3);
+        assert platform.getMode().equals("platform") && platform.requests() != platform.searches()
+                : "Requests and searches should use separate executors";
+        assert platform.parallel() != ForkJoinPool.commonPool()
+                && platform.parallel().getParallelism() == 3 : "Data-parallel work should get its own sized pool";
+        platform.shutdown(1_000);
+        assert platform.parallel().isShutdown() : "Shutdown should stop the data-parallel pool too";
+
+        System.out.println("✓ Virtual-thread executor tests passed");
+    }
+
+    private static void testRouteCache() {
+        System.out.println("Testing route cache...");
+
+        long[] now = {0};
+        List<Route> routes = Collections.singletonList(new Route("walking"));
+        RouteCache cache = new RouteCache(100, Long.MAX_VALUE, 1_000, () -> now[0]);
+
+        // Frequently used keys survive a scan of one-off keys
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 20; i++) {
+                if (cache.get("hot" + i) == null) cache.put("hot" + i, routes);
+            }
+        }
+        for (int i = 0; i < 1_000; i++) {
+            cache.put("scan" + i, routes);
+        }
+        assert cache.size() <= 100 : "Cache should stay within its size bound";
+        assert cache.getEvictionCount() > 0 : "Overflow should evict";
+        int hotHits = 0;
+        for (int i = 0; i < 20; i++) {
+            if (cache.get("hot" + i) != null) hotHits++;
+        }
+        assert hotHits >= 18 : "TinyLFU admission should keep popular entries, kept " + hotHits;
+
+        // TTL and epoch invalidation
+        cache.put("ttl", routes);
+        assert cache.get("ttl") != null : "Fresh entry should hit";
+        now[0] += 1_000;
+        assert cache.get("ttl") == null : "Expired entry should miss";
+        cache.put("epoch", routes);
+        long epoch = cache.getEpoch();
+        cache.advanceEpoch();
+        assert cache.get("epoch") == null : "Entries from an older epoch should miss";
+        cache.put("late", routes, epoch);
+        assert cache.get("late") == null : "Results computed under an older epoch should not be stored";
+
+        long hits = cache.getHitCount();
+        long misses = cache.getMissCount();
+        cache.put("counted", routes);
+        cache.get("counted");
+        cache.get("absent");
+        assert cache.getHitCount() == hits + 1 && cache.getMissCount() == misses + 1 : "Hits and misses should be counted";
+
+        // Memory bound
+        RouteCache small = new RouteCache(1_000, 10 * RouteCache.weigh(routes), 60_000, () -> 0);
+        for (int i = 0; i < 100; i++) small.put("k" + i, routes);
+        assert small.getWeight() <= 10 * RouteCache.weigh(routes) && small.size() <= 10 : "Cache should stay within its weight bound";
+
+        UGNavigateEngineEnhanced engine = new UGNavigateEngineEnhanced();
+        try {
+            RoutePreferences preferences = new RoutePreferences("walking", "time");
+            engine.findOptimalRoutes("HALL001", "LIB001", preferences);
+            engine.findOptimalRoutes("HALL001", "LIB001", preferences);
+            CampusStats stats = engine.getCampusStats();
+            assert stats.getCacheHits() >= 1 && stats.getCacheMisses() >= 1 : "Engine should report cache counters";
+        } finally {
+            engine.shutdown();
+        }
+
+        System.out.println("✓ Route cache tests passed");
+    }
+
+    private static void testCacheReverseIndex() {
+        System.out.println("Testing cache reverse index...");
+
+        CampusGraph graph = buildCampusGraph();
+        CompactGraph snapshot = graph.snapshot();
+        RouteCache cache = new RouteCache(100, Long.MAX_VALUE, 60_000);
+        cache.applyConditions(snapshot);
+
+        // One single-edge route per arc, so each entry depends on exactly one road
+        int arcCount = snapshot.getArcCount();
+        long stamp = cache.getStamp();
+        for (int arc = 0; arc < arcCount; arc++) {
+            cache.put("arc" + arc, singleEdgeRoute(snapshot, arc), stamp, snapshot);
+        }
+        assert snapshot.arcOf(snapshot.getEdge(7)) == 7 : "Edges should map back to their arc id";
+        assert snapshot.reweighed().arcOf(snapshot.getEdge(7)) == 7 : "Arc ids should survive reweighing";
+
+        // Closing one road evicts only the route over it
+        Edge closedEdge = snapshot.getEdge(3);
+        graph.setRoadClosure(closedEdge.getSource(), closedEdge.getDestination(), true);
+        long evictions = cache.getEvictionCount();
+        cache.applyConditions(graph.snapshot());
+        assert cache.get("arc3") == null : "Route over the closed road should be evicted";
+        assert cache.getEvictionCount() == evictions + 1 : "A closure should evict exactly the affected routes";
+        for (int arc = 0; arc < arcCount; arc++) {
+            if (arc != 3) assert cache.get("arc" + arc) != null : "Unrelated route " + arc + " should survive";
+        }
+
+        // Jitter within the threshold keeps everything; a large local rise evicts that road's routes
+        for (int arc = 0; arc < arcCount; arc++) {
+            snapshot.getEdge(arc).setTrafficMultiplier(arc % 2 == 0 ? 1.2 : 0.8); // campus-wide level unchanged
+        }
+        cache.applyConditions(graph.snapshot());
+        for (int arc = 0; arc < arcCount; arc++) {
+            if (arc != 3) assert cache.get("arc" + arc) != null : "Small traffic changes should not evict " + arc;
+        }
+        snapshot.getEdge(5).setTrafficMultiplier(2.0);
+        cache.applyConditions(graph.snapshot());
+        assert cache.get("arc5") == null && cache.get("arc6") != null : "Large local traffic rise should evict precisely";
+
+        // A result computed before an invalidation of one of its roads is not stored
+        long before = cache.getStamp();
+        cache.invalidateArcs(9);
+        cache.put("late9", singleEdgeRoute(snapshot, 9), before, snapshot);
+        cache.put("late10", singleEdgeRoute(snapshot, 10), before, snapshot);
+        assert cache.get("late9") == null : "Result racing an invalidation of its road should be dropped";
+        assert cache.get("late10") != null : "Result over untouched roads should be stored";
+
+        // Posting lists stay exact while entries on the same arc churn
+        for (int i = 0; i < 1_000; i++) {
+            cache.put("churn", singleEdgeRoute(snapshot, 11), cache.getStamp(), snapshot);
+        }
+        assert cache.invalidateArcs(11) == 2 : "Invalidation should evict the live entries once each";
+        assert cache.get("arc11") == null && cache.get("churn") == null : "Entries over arc 11 should be gone";
+        assert cache.get("arc12") != null : "Neighbouring entries should survive";
+
+        System.out.println("✓ Cache reverse index tests passed");
+    }
+
+    private static void testRequestCoalescing() {
+        System.out.println("Testing request coalescing...");
+
+        UGNavigateEngineEnhanced engine = new UGNavigateEngineEnhanced(EngineExecutors.virtualThreads(2));
+        try {
+            // A herd of identical requests collapses to one computation
+            List<CompletableFuture<RouteResult>> requests = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                requests.add(engine.findOptimalRoutesAsync("HALL001", "LIB001", new RoutePreferences("walking", "time")));
+            }
+            for (CompletableFuture<RouteResult> request : requests) {
+                RouteResult result = request.get(60, TimeUnit.SECONDS);
+                assert result.hasRoutes() : "Every coalesced request should get routes";
+            }
+            long computations = engine.getRouteComputationCount();
+            assert engine.getCoalescedRequestCount() > 0 : "Concurrent identical misses should share a computation";
+            assert computations == 1 : "Herd should collapse to one computation, ran " + computations;
+        } catch (Exception e) {
+            throw new AssertionError("Coalesced requests should complete: " + e);
+        } finally {
+            engine.shutdown();
+        }
+
+        System.out.println("✓ Request coalescing tests passed");
+    }
+
+    private static void testBackgroundConditionsRefresh() {
+        System.out.println("Testing background conditions refresh...");
+
+        UGNavigateEngineEnhanced engine = new UGNavigateEngineEnhanced(EngineExecutors.platformThreads(2), 0);
+        try {
+            // Queries read the published snapshot and never update conditions themselves
+            CompactGraph published = engine.getRoutingSnapshot();
+            assert engine.findOptimalRoutes("HALL001", "LIB001", new RoutePreferences("walking", "time")).hasRoutes()
+                    : "Query should find routes";
+            assert engine.getRoutingSnapshot() == published : "A query should not refresh conditions";
+
+            engine.refreshConditions();
+            assert engine.getRoutingSnapshot() != published : "Explicit refresh should publish a new snapshot";
+
+            // The scheduler publishes on its own at the configured cadence
+            published = engine.getRoutingSnapshot();
+            engine.setConditionsRefresh(20);
+            long giveUp = System.currentTimeMillis() + 5_000;
+            while (engine.getRoutingSnapshot() == published && System.currentTimeMillis() < giveUp) {
+                Thread.sleep(10);
+            }
+            assert engine.getRoutingSnapshot() != published : "Background refresh should publish new conditions";
+            engine.setConditionsRefresh(0);
+
+            // Scheduled refreshes change traffic only; random closures are an explicit simulation
+            for (int i = 0; i < 10; i++) {
+                engine.refreshConditions();
+                CompactGraph refreshed = engine.getRoutingSnapshot();
+                for (int arc = 0; arc < refreshed.getArcCount(); arc++) {
+                    assert !refreshed.isClosed(arc) : "Refresh should not close roads unless simulating closures";
+                }
+            }
+            TrafficManager simulation = new TrafficManager();
+            simulation.setSimulatingClosures(true);
+            CompactGraph topology = engine.getRoutingSnapshot();
+            boolean[] closures = new boolean[topology.getArcCount()];
+            boolean anyClosed = false;
+            for (int round = 0; round < 50 && !anyClosed; round++) {
+                simulation.simulateConditions(topology, new double[closures.length], closures);
+                for (boolean closed : closures) anyClosed |= closed;
+            }
+            assert anyClosed : "Closure simulation should close roads when enabled";
+        } catch (InterruptedException e) {
+            throw new AssertionError("Interrupted waiting for refresh");
+        } finally {
+            engine.shutdown();
+        }
+
+        System.out.println("✓ Background conditions refresh tests passed");
+    }
+
+    private static void testVersionedSnapshots() {
+        System.out.println("Testing versioned snapshots...");
+
+        CampusGraph graph = buildCampusGraph();
+        CompactGraph pinned = graph.snapshot();
+        int[] arcs = {0};
+        int source = pinned.getSources()[0];
+        double before = pinned.buildRoute(source, arcs, 1, "walking").getTotalWalkingTime();
+
+        // Writers changing live edges do not leak into a snapshot already taken
+        for (Location location : graph.getAllLocations()) {
+            for (Edge edge : graph.getNeighbors(location)) edge.setTrafficMultiplier(3.0);
+        }
+        pinned.getEdge(0).setClosed(true);
+        assert pinned.buildRoute(source, arcs, 1, "walking").getTotalWalkingTime() == before
+                : "Routes from a pinned snapshot should keep its travel times";
+        assert !pinned.isClosed(0) && pinned.getTrafficMultiplier(0) == 1.0 : "Snapshot conditions should be frozen";
+
+        CompactGraph next = graph.snapshot();
+        assert next.getVersion() > pinned.getVersion() : "Each snapshot should get a newer version";
+        assert next.isClosed(0) && Math.abs(next.getTrafficMultiplier(1) - 3.0) < 1e-9 : "New version should carry the change";
+        Route combined = new Route("walking");
+        combined.append(pinned.buildRoute(source, arcs, 1, "walking"));
+        assert combined.getPath().size() == 2 && combined.getTotalWalkingTime() == before
+                : "Appending should keep the leg's own travel times";
+
+        // Conditions given per arc replace the live edges' own in the new version
+        double[] multipliers = new double[next.getArcCount()];
+        Arrays.fill(multipliers, 2.0);
+        boolean[] closures = new boolean[next.getArcCount()];
+        closures[1] = true;
+        CompactGraph given = next.withConditions(multipliers, closures);
+        assert given.getVersion() > next.getVersion() && given.sharesTopologyWith(next) : "Should be a new version";
+        assert !given.isClosed(0) && given.isClosed(1) && given.getTrafficMultiplier(0) == 2.0
+                : "Given conditions should replace the live ones";
+
+        // A publish between the stamp and snapshot reads must not let routes over the newly closed
+        // road into the cache, even had the query routed on the previous snapshot
+        UGNavigateEngineEnhanced publisher = new UGNavigateEngineEnhanced(EngineExecutors.platformThreads(2), 0);
+        try {
+            CompactGraph previous = publisher.getRoutingSnapshot();
+            int open = 0;
+            while (previous.isClosed(open)) open++;
+            Edge road = previous.getEdge(open);
+            UGNavigateEngineEnhanced.Pin pin = publisher.pinConditions(() -> publisher.setRoadClosure(
+                    road.getSource().getId(), road.getDestination().getId(), true));
+            assert pin.snapshot != previous : "Snapshot read after the publish should be the new one";
+            assert pin.allPairs == null || pin.allPairs.getGraph() == pin.snapshot
+                    : "All-pairs table should be published together with its snapshot";
+            int closedArc = -1;
+            for (int arc = 0; arc < previous.getArcCount() && closedArc < 0; arc++) {
+                if (!previous.isClosed(arc) && pin.snapshot.isClosed(arc)) closedArc = arc;
+            }
+            assert closedArc >= 0 : "Closure should be published";
+            RouteCache cache = publisher.getRouteCache();
+            cache.put("interleaved", singleEdgeRoute(previous, closedArc), pin.cacheStamp, previous);
+            assert cache.get("interleaved") == null : "Route over a road closed after the stamp should not be cached";
+
+            // Publishing never writes to the shared edges, and a closure by hand survives refreshes
+            publisher.refreshConditions();
+            for (int arc = 0; arc < previous.getArcCount(); arc++) {
+                Edge edge = previous.getEdge(arc);
+                assert edge.getTrafficMultiplier() == 1.0 && !edge.isClosed() : "Live edges should stay untouched";
+            }
+            assert publisher.getRoutingSnapshot().isClosed(closedArc) : "Closure by hand should survive a refresh";
+            publisher.setRoadClosure(road.getSource().getId(), road.getDestination().getId(), false);
+            assert !publisher.getRoutingSnapshot().isClosed(closedArc) : "Reopened road should be published open";
+        } finally {
+            publisher.shutdown();
+        }
+
+        // Preprocessing for a new version is built once, however many queries ask for it at once
+        UGNavigateEngineEnhanced builder = new UGNavigateEngineEnhanced(EngineExecutors.platformThreads(2), 0);
+        ExecutorService callers = Executors.newFixedThreadPool(16);
+        try {
+            builder.refreshConditions();
+            List<Future<LandmarkHeuristic>> heuristics = new ArrayList<>();
+            for (int i = 0; i < 32; i++) heuristics.add(callers.submit(() -> builder.landmarkHeuristicFor("walking")));
+            LandmarkHeuristic shared = heuristics.get(0).get();
+            for (Future<LandmarkHeuristic> heuristic : heuristics) {
+                assert heuristic.get() == shared : "Concurrent queries should share one build per version";
+            }
+            assert shared.getGraph() == builder.getRoutingSnapshot() : "Build should be for the published version";
+            builder.refreshConditions();
+            assert builder.landmarkHeuristicFor("walking") != shared : "A new version should get its own build";
+        } catch (Exception e) {
+            throw new AssertionError("Concurrent preprocessing should complete: " + e);
+        } finally {
+            callers.shutdown();
+            builder.shutdown();
+        }
+
+        // Queries keep working while conditions are republished underneath them
+        UGNavigateEngineEnhanced engine = new UGNavigateEngineEnhanced(EngineExecutors.virtualThreads(2), 1);
+        try {
+            List<CompletableFuture<RouteResult>> requests = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                requests.add(engine.findOptimalRoutesAsync(i % 2 == 0 ? "HALL001" : "HALL002", "LIB001",
+                        new RoutePreferences("walking", "time")));
+            }
+            for (CompletableFuture<RouteResult> request : requests) {
+                RouteResult result = request.get(60, TimeUnit.SECONDS);
+                for (Route route : result.getRoutes()) {
+                    assert route.getTotalWalkingTime() < Double.POSITIVE_INFINITY : "Routes should not cross closed roads";
+                }
+            }
+        } catch (Exception e) {
+            throw new AssertionError("Queries during republishing should complete: " + e);
+        } finally {
+            engine.shutdown();
+        }
+
+        System.out.println("✓ Versioned snapshot tests passed");
+    }
+
+    private static List<Route> singleEdgeRoute(CompactGraph graph, int arc) {
+        Edge edge = graph.getEdge(arc);
+        Route route = new Route("walking");
+        route.addLocation(edge.getSource());
+        route.addLocation(edge.getDestination());
+        route.addEdge(edge);
+        return Collections.singletonList(route);
+    }
+
+    private static void assertCancelled(Runnable search) {
+        boolean cancelled = false;
+        try {
+            search.run();
+        } catch (CancellationException e) {
+            cancelled = true;
+        }
+        assert cancelled : "Search should stop once its deadline is spent";
+    }
+
+    private static List<List<Location>> permutations(List<Location> items) {
+        List<List<Location>> out = new ArrayList<>();
+        if (items.isEmpty()) {
+            out.add(new ArrayList<>());
+            return out;
+        }
+        for (int i = 0; i < items.size(); i++) {
+            List<Location> rest = new ArrayList<>(items);
+            Location first = rest.remove(i);
+            for (List<Location> tail : permutations(rest)) {
+                tail.add(0, first);
+                out.add(tail);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Label-correcting reference: relax every arc until no arrival improves
+     */
+    private static void earliestArrivalsByRelaxation(TrafficProfiles profiles, int source, double departure,
+                                                     double[] arrival) {
+        CompactGraph graph = profiles.getGraph();
+        Arrays.fill(arrival, Double.POSITIVE_INFINITY);
+        arrival[source] = departure;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int arc = 0; arc < graph.getArcCount(); arc++) {
+                int u = graph.getSources()[arc];
+                if (arrival[u] == Double.POSITIVE_INFINITY) continue;
+                double candidate = arrival[u] + profiles.travelTime(arc, arrival[u]);
+                if (candidate < arrival[graph.getTargets()[arc]] - 1e-12) {
+                    arrival[graph.getTargets()[arc]] = candidate;
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    private static void enumerateCostVectors(CompactGraph graph, double[] open, double[][] costs, int node, int target,
+                                             boolean[] onPath, double[] cost, List<double[]> out) {
+        if (node == target) {
+            out.add(cost.clone());
+            return;
+        }
+        onPath[node] = true;
+        for (int arc = graph.getOffsets()[node]; arc < graph.getOffsets()[node + 1]; arc++) {
+            int next = graph.getTargets()[arc];
+            if (onPath[next] || open[arc] == Double.POSITIVE_INFINITY) continue;
+            double[] extended = new double[cost.length];
+            for (int c = 0; c < cost.length; c++) extended[c] = cost[c] + costs[c][arc];
+            enumerateCostVectors(graph, open, costs, next, target, onPath, extended, out);
+        }
+        onPath[node] = false;
+    }
+
+    private static void enumerateSimplePaths(CompactGraph graph, double[] weights, int node, int target,
+                                             boolean[] onPath, double cost, List<Double> out) {
+        if (node == target) {
+            out.add(cost);
+            return;
+        }
+        onPath[node] = true;
+        for (int arc = graph.getOffsets()[node]; arc < graph.getOffsets()[node + 1]; arc++) {
+            int next = graph.getTargets()[arc];
+            if (!onPath[next] && weights[arc] != Double.POSITIVE_INFINITY) {
+                enumerateSimplePaths(graph, weights, next, target, onPath, cost + weights[arc], out);
+            }
+        }
+        onPath[node] = false;
+    }
+
+    /**
+     * Every edge of the route must start where the previous one ended
+     */
+    static void assertConnected(Route route) {
+        List<Location> path = route.getPath();
+        List<Edge> edges = route.getEdges();
+        assert edges.size() == path.size() - 1 : "Route should have one edge per hop";
+        for (int i = 0; i < edges.size(); i++) {
+            assert edges.get(i).getSource().equals(path.get(i))
+                    && edges.get(i).getDestination().equals(path.get(i + 1)) : "Route edges should be contiguous";
+        }
+    }
+
+    /**
+     * Traffic below and above 1.0 plus a few closures, as TrafficManager produces
+     */
+    static void applyRandomConditions(CampusGraph graph, Random random) {
+        for (Location location : graph.getAllLocations()) {
+            for (Edge edge : graph.getNeighbors(location)) {
+                edge.setTrafficMultiplier(0.5 + random.nextDouble());
+                edge.setClosed(random.nextDouble() < 0.05);
+            }
+        }
+    }
+
+    static void assertSameCost(Route expected, Route actual, String algorithm) {
+        if (expected == null) {
+            assert actual == null : algorithm + " found a route where none exists";
+            return;
+        }
+        assert actual != null : algorithm + " missed a route";
+        assert Math.abs(expected.getTotalTime() - actual.getTotalTime()) < 1e-6
+                : algorithm + " returned a longer route";
+    }
+
+    static CampusGraph buildCampusGraph() {
+        CampusGraph graph = new CampusGraph();
+        UGCampusDataEnhanced.initializeRealUGCampusData(graph);
+        return graph;
+    }
+
     public static void main(String[] args) {
         try {
             runAllTests();